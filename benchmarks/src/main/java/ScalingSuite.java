@@ -0,0 +1,331 @@
+import java.io.*;
+import java.lang.management.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Macro benchmark over families of generated instances of growing size.
+ * Every instance is solved with every algorithm and variable ordering, recording
+ * wall time, search nodes, arc revisions, peak heap and allocation rate into a
+ * CSV and/or JSON report. Given a baseline CSV from an earlier run, the rows whose
+ * time, counters, peak heap or allocation rate grew by more than the threshold are
+ * flagged as regressions and the exit status is 1.
+ */
+public class ScalingSuite {
+
+    // Shorter times are dominated by JIT and timer noise and are not compared
+    private static final double MIN_COMPARED_MS = 20;
+    private static final String HEADER = "instance,algorithm,varOrder,status,timeMs,searchNodes,arcRevisions,"
+            + "peakHeapBytes,allocatedBytes,allocMBPerSec";
+
+    private Path instanceDir;
+    private boolean temporary = false;
+    private int repeat = 3;
+    private long timeoutMs = 30000;
+    private double threshold = 0.2;
+
+    private final ArrayList<Result> results = new ArrayList<Result>();
+
+    /**
+     * Measurements of one instance, algorithm and ordering
+     */
+    private static class Result {
+        String instance;
+        String algorithm;
+        String varOrder;
+        String status;
+        double timeMs;
+        long searchNodes;
+        long arcRevisions;
+        long peakHeap;
+        long allocated;
+
+        String key() {
+            return instance + "," + algorithm + "," + varOrder;
+        }
+
+        double allocRate() {
+            return timeMs > 0 ? allocated / 1e6 / (timeMs / 1000) : 0;
+        }
+
+        String toCsv() {
+            return key() + "," + status + "," + String.format(Locale.ROOT, "%.3f", timeMs) + "," + searchNodes
+                    + "," + arcRevisions + "," + peakHeap + "," + allocated + ","
+                    + String.format(Locale.ROOT, "%.1f", allocRate());
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT,
+                    "{\"instance\":\"%s\",\"algorithm\":\"%s\",\"varOrder\":\"%s\",\"status\":\"%s\","
+                            + "\"timeMs\":%.3f,\"searchNodes\":%d,\"arcRevisions\":%d,\"peakHeapBytes\":%d,"
+                            + "\"allocatedBytes\":%d,\"allocMBPerSec\":%.1f}",
+                    instance, algorithm, varOrder, status, timeMs, searchNodes, arcRevisions, peakHeap, allocated,
+                    allocRate());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        ScalingSuite suite = new ScalingSuite();
+        String csvFile = null;
+        String jsonFile = null;
+        String baselineFile = null;
+        String families = "queens,langford,sudoku";
+        String dir = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-csv") && i + 1 < args.length) {
+                csvFile = args[++i];
+            } else if (args[i].equals("-json") && i + 1 < args.length) {
+                jsonFile = args[++i];
+            } else if (args[i].equals("-baseline") && i + 1 < args.length) {
+                baselineFile = args[++i];
+            } else if (args[i].equals("-threshold") && i + 1 < args.length) {
+                suite.threshold = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("-timeout") && i + 1 < args.length) {
+                suite.timeoutMs = (long) (Double.parseDouble(args[++i]) * 1000);
+            } else if (args[i].equals("-repeat") && i + 1 < args.length) {
+                suite.repeat = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-families") && i + 1 < args.length) {
+                families = args[++i];
+            } else if (args[i].equals("-dir") && i + 1 < args.length) {
+                dir = args[++i];
+            } else {
+                System.out.println("Usage: java ScalingSuite [-csv <file>] [-json <file>] [-baseline <csv>]"
+                        + " [-threshold <ratio>] [-timeout <s>] [-repeat <n>] [-families queens,langford,sudoku]"
+                        + " [-dir <instances>]");
+                return;
+            }
+        }
+        if (dir == null) {
+            // Generated instances are removed on exit unless -dir keeps them
+            suite.instanceDir = Files.createTempDirectory("scaling");
+            suite.temporary = true;
+            suite.instanceDir.toFile().deleteOnExit();
+        } else {
+            suite.instanceDir = Files.createDirectories(Paths.get(dir));
+        }
+
+        for (String family : families.split(",")) {
+            switch (family) {
+                case "queens":
+                    for (int n : new int[] { 8, 12, 16, 20, 24 }) {
+                        suite.solveAll(suite.generate("queens" + n, () -> QueensGenerator.main(new String[] { "" + n })));
+                    }
+                    break;
+                case "langford":
+                    for (int[] kn : new int[][] { { 2, 4 }, { 2, 7 }, { 2, 8 }, { 2, 11 }, { 3, 9 }, { 3, 10 } }) {
+                        suite.solveAll(suite.generate("langfords" + kn[0] + "_" + kn[1],
+                                () -> LangfordsGenerator.main(new String[] { "" + kn[0], "" + kn[1] })));
+                    }
+                    break;
+                case "sudoku":
+                    for (int clues : new int[] { 50, 40, 30, 20 }) {
+                        suite.solveAll(suite.generateSudoku(clues));
+                    }
+                    break;
+                default:
+                    System.out.println("Unknown family: " + family);
+                    return;
+            }
+        }
+
+        if (csvFile != null) {
+            suite.writeCsv(Paths.get(csvFile));
+        }
+        if (jsonFile != null) {
+            suite.writeJson(Paths.get(jsonFile));
+        }
+        if (baselineFile != null && suite.compare(Paths.get(baselineFile)) > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Write what a generator prints to a file of the instance directory
+     */
+    private Path generate(String name, Runnable generator) throws IOException {
+        Path file = instanceDir.resolve(name + ".csp");
+        if (temporary) {
+            // Files registered after the directory are deleted before it
+            file.toFile().deleteOnExit();
+        }
+        PrintStream out = System.out;
+        try (PrintStream ps = new PrintStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            System.setOut(ps);
+            generator.run();
+        } finally {
+            System.setOut(out);
+        }
+        return file;
+    }
+
+    /**
+     * Sudoku with the first clues cells of a fixed complete grid given, the
+     * generator itself only produces the empty grid
+     */
+    private Path generateSudoku(int clues) throws IOException {
+        Path file = generate("sudoku" + clues, () -> SudokuGenerator.main(new String[0]));
+        List<String> lines = Files.readAllLines(file);
+        int cell = 0;
+        for (int i = 0; i < lines.size() && cell < clues; i++) {
+            if (lines.get(i).equals("1, 9")) {
+                int row = cell / 9;
+                int col = cell % 9;
+                int value = (row * 3 + row / 3 + col) % 9 + 1;
+                lines.set(i, value + ", " + value);
+                cell++;
+            }
+        }
+        Files.write(file, lines);
+        return file;
+    }
+
+    /**
+     * Solve the instance with every configuration
+     */
+    private void solveAll(Path file) {
+        BinaryCSP csp = new BinaryCSPReader().readBinaryCSP(file.toString());
+        String name = file.getFileName().toString().replace(".csp", "");
+        for (String algorithm : Solver.ALGORITHMS) {
+            for (String varOrder : Solver.VAR_ORDERS) {
+                Result r = measure(csp, algorithm, varOrder);
+                r.instance = name;
+                results.add(r);
+                System.out.println(r.toCsv());
+            }
+        }
+    }
+
+    /**
+     * Median time over the repeats after one warm-up run. Counters are deterministic,
+     * heap and allocations are those of the median run
+     */
+    private Result measure(BinaryCSP csp, String algorithm, String varOrder) {
+        Result warmUp = run(csp, algorithm, varOrder);
+        if (!warmUp.status.equals("ok")) {
+            return warmUp;
+        }
+        Result[] runs = new Result[repeat];
+        for (int i = 0; i < repeat; i++) {
+            runs[i] = run(csp, algorithm, varOrder);
+        }
+        Arrays.sort(runs, Comparator.comparingDouble(r -> r.timeMs));
+        return runs[repeat / 2];
+    }
+
+    /**
+     * Compile and solve once, stopping the solver after the timeout
+     */
+    private Result run(BinaryCSP csp, String algorithm, String varOrder) {
+        Result r = new Result();
+        r.algorithm = algorithm;
+        r.varOrder = varOrder;
+
+        System.gc();
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+        for (MemoryPoolMXBean pool : pools) {
+            pool.resetPeakUsage();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+
+        long start = System.nanoTime();
+        Solver solver = new Solver(csp, varOrder, "asc");
+        solver.setTimeLimit(timeoutMs);
+        SolverResult result = solver.run(algorithm);
+        r.timeMs = (System.nanoTime() - start) / 1e6;
+
+        r.allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        for (MemoryPoolMXBean pool : pools) {
+            if (pool.getType() == MemoryType.HEAP) {
+                r.peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        r.searchNodes = solver.getSearchNodes();
+        r.arcRevisions = solver.getArcRevisions();
+        switch (result.getStatus()) {
+            case SAT:
+                r.status = "ok";
+                break;
+            case UNSAT:
+                r.status = "unsat";
+                break;
+            default:
+                r.status = "timeout";
+        }
+        return r;
+    }
+
+    private void writeCsv(Path file) throws IOException {
+        ArrayList<String> lines = new ArrayList<String>();
+        lines.add(HEADER);
+        for (Result r : results) {
+            lines.add(r.toCsv());
+        }
+        Files.write(file, lines);
+    }
+
+    private void writeJson(Path file) throws IOException {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            json.append("  ").append(results.get(i).toJson()).append(i + 1 < results.size() ? ",\n" : "\n");
+        }
+        json.append("]\n");
+        Files.write(file, json.toString().getBytes());
+    }
+
+    /**
+     * Print the rows worse than the baseline by more than the threshold, returns their number.
+     * Time and allocation rate are only compared when both runs finished and one took at
+     * least MIN_COMPARED_MS, a new timeout is always a regression
+     */
+    private int compare(Path baselineFile) throws IOException {
+        HashMap<String, String[]> baseline = new HashMap<String, String[]>();
+        for (String line : Files.readAllLines(baselineFile)) {
+            String[] fields = line.split(",");
+            if (fields.length >= 7 && !line.equals(HEADER)) {
+                baseline.put(fields[0] + "," + fields[1] + "," + fields[2], fields);
+            }
+        }
+
+        int regressions = 0;
+        for (Result r : results) {
+            String[] base = baseline.get(r.key());
+            if (base == null) {
+                continue;
+            }
+            ArrayList<String> reasons = new ArrayList<String>();
+            if (r.status.equals("timeout") && !base[3].equals("timeout")) {
+                reasons.add("timeout");
+            } else if (r.status.equals("ok") && base[3].equals("ok")) {
+                double baseTime = Double.parseDouble(base[4]);
+                boolean timed = Math.max(baseTime, r.timeMs) >= MIN_COMPARED_MS;
+                if (timed) {
+                    checkGrowth(reasons, "timeMs", baseTime, r.timeMs);
+                }
+                checkGrowth(reasons, "searchNodes", Double.parseDouble(base[5]), r.searchNodes);
+                checkGrowth(reasons, "arcRevisions", Double.parseDouble(base[6]), r.arcRevisions);
+                // Baselines written before the memory columns only compare the above
+                if (base.length >= 10) {
+                    checkGrowth(reasons, "peakHeapBytes", Double.parseDouble(base[7]), r.peakHeap);
+                    if (timed) {
+                        checkGrowth(reasons, "allocMBPerSec", Double.parseDouble(base[9]), r.allocRate());
+                    }
+                }
+            }
+            if (!reasons.isEmpty()) {
+                regressions++;
+                System.out.println("REGRESSION " + r.key() + " " + String.join(" ", reasons));
+            }
+        }
+        System.out.println(regressions + " regressions against " + baselineFile);
+        return regressions;
+    }
+
+    private void checkGrowth(ArrayList<String> reasons, String metric, double before, double after) {
+        if (after > before * (1 + threshold)) {
+            reasons.add(String.format(Locale.ROOT, "%s %.1f -> %.1f", metric, before, after));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import java.util.*;
+
+/**
+ * Kernels of the solver for the JMH benchmarks.
+ * It sits in the default package with the solver classes so that it can use
+ * the package-private hooks of Solver
+ */
+public class SolverKernels implements benchmarks.Kernels {
+
+    private BinaryCSP csp;
+    private ConstraintGraph graph;
+    private Solver solver;
+
+    /**
+     * Constructor
+     */
+    public SolverKernels() {
+    }
+
+    @Override
+    public Object read(String file) {
+        return new BinaryCSPReader().readBinaryCSP(file);
+    }
+
+    @Override
+    public void load(String file) {
+        csp = new BinaryCSPReader().readBinaryCSP(file);
+        graph = Solver.compile(csp);
+        solver = new Solver(csp, graph, "asc", "asc");
+    }
+
+    @Override
+    public Object generateConstraintList() {
+        return Solver.generateConstraintList(csp.getConstraints(), csp.getDomainBounds());
+    }
+
+    @Override
+    public int reviseLeft(int var) {
+        Trail trail = solver.getTrail();
+        Variable v = solver.getVarList().get(var);
+        trail.newLevel();
+        v.assign(v.getSmallestDomain(), trail);
+        int changed = reviseArcsTo(var);
+        trail.backtrack();
+        v.unassign();
+        return changed;
+    }
+
+    @Override
+    public int reviseRight(int var) {
+        Trail trail = solver.getTrail();
+        Variable v = solver.getVarList().get(var);
+        trail.newLevel();
+        v.prune(v.getSmallestDomain(), trail);
+        int changed = reviseArcsTo(var);
+        trail.backtrack();
+        return changed;
+    }
+
+    /**
+     * Revise every arc pointing at var once, returns the number of changed domains
+     */
+    private int reviseArcsTo(int var) {
+        int changed = 0;
+        for (int k = graph.getArcsToStart(var); k < graph.getArcsToEnd(var); k++) {
+            if (solver.revise(graph.getArcTo(k))) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public int domainScan(int var) {
+        Domain d = solver.getVarList().get(var).getDomain();
+        int sum = 0;
+        for (int v = d.first(); v != Domain.NONE; v = d.next(v)) {
+            sum += v;
+        }
+        for (int v = d.getLB(); v <= d.getUB(); v++) {
+            if (d.contains(v)) {
+                sum++;
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public int domainPruneRestore(int var) {
+        Trail trail = solver.getTrail();
+        Variable v = solver.getVarList().get(var);
+        trail.newLevel();
+        v.assign(v.getSmallestDomain(), trail);
+        int size = trail.size();
+        trail.backtrack();
+        v.unassign();
+        return size;
+    }
+
+    @Override
+    public long solve(String algorithm, String varOrder) {
+        Solver s = new Solver(csp, graph, varOrder, "asc");
+        s.run(algorithm);
+        return s.getSearchNodes();
+    }
+}
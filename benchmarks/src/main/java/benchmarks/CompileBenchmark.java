@@ -0,0 +1,30 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compiling the parsed constraints into support bitsets
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompileBenchmark extends KernelBenchmark {
+
+    @Param({ "8Queens", "10Queens", "FinnishSudoku", "langfords3_10" })
+    public String file;
+
+    @Setup
+    public void setUp() {
+        kernels.load(csp(file));
+    }
+
+    @Benchmark
+    public Object generateConstraintList() {
+        return kernels.generateConstraintList();
+    }
+}
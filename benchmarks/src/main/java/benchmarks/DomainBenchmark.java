@@ -0,0 +1,38 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Variable domain operations: iteration, membership, pruning and restoring
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DomainBenchmark extends KernelBenchmark {
+
+    @Param({ "10Queens", "langfords3_10" })
+    public String file;
+
+    @Param({ "0" })
+    public int var;
+
+    @Setup
+    public void setUp() {
+        kernels.load(csp(file));
+    }
+
+    @Benchmark
+    public int scan() {
+        return kernels.domainScan(var);
+    }
+
+    @Benchmark
+    public int pruneRestore() {
+        return kernels.domainPruneRestore(var);
+    }
+}
@@ -0,0 +1,14 @@
+package benchmarks;
+
+/**
+ * Base of the benchmark states, holding the kernels and locating the csps.
+ * The csps directory defaults to ../src/csps and can be set with -Dcsps=<dir>
+ */
+public abstract class KernelBenchmark {
+
+    protected final Kernels kernels = Kernels.create();
+
+    protected static String csp(String name) {
+        return System.getProperty("csps", "../src/csps") + "/" + name + ".csp";
+    }
+}
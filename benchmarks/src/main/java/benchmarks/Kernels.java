@@ -0,0 +1,61 @@
+package benchmarks;
+
+/**
+ * Solver kernels measured by the benchmarks.
+ * The solver classes live in the default package, which named packages cannot
+ * import, so they are reached through SolverKernels in the default package.
+ * Results are returned so that the benchmarks can sink them into a Blackhole.
+ */
+public interface Kernels {
+
+    /**
+     * Load SolverKernels, the implementation next to the solver classes
+     */
+    static Kernels create() {
+        try {
+            return (Kernels) Class.forName("SolverKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * BinaryCSPReader.readBinaryCSP on a file, without keeping the result
+     */
+    Object read(String file);
+
+    /**
+     * Parse and compile a file for the kernels below
+     */
+    void load(String file);
+
+    /**
+     * Solver.generateConstraintList on the loaded problem
+     */
+    Object generateConstraintList();
+
+    /**
+     * Assign the first value of var and revise the arcs pointing at it, then undo
+     */
+    int reviseLeft(int var);
+
+    /**
+     * Remove the first value of var and revise the arcs pointing at it, then undo
+     */
+    int reviseRight(int var);
+
+    /**
+     * Walk the domain of var with first/next and probe every value with contains
+     */
+    int domainScan(int var);
+
+    /**
+     * Prune every value of var but one through the trail, then restore them
+     */
+    int domainPruneRestore(int var);
+
+    /**
+     * Full search on the loaded problem, returns the number of search nodes
+     */
+    long solve(String algorithm, String varOrder);
+}
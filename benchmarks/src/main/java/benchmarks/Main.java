@@ -0,0 +1,28 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH launcher which adds the allocation profiler (-prof gc) unless profilers
+ * are chosen on the command line
+ */
+public class Main {
+
+    public static void main(String[] args) throws Exception {
+        for (String arg : args) {
+            if (arg.equals("-prof") || arg.startsWith("-h") || arg.startsWith("-l")) {
+                org.openjdk.jmh.Main.main(args);
+                return;
+            }
+        }
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
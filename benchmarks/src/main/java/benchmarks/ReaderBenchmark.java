@@ -0,0 +1,26 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Parsing every file of src/csps
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReaderBenchmark extends KernelBenchmark {
+
+    @Param({ "4Queens", "6Queens", "8Queens", "10Queens", "FinnishSudoku", "SimonisSudoku",
+            "langfords2_3", "langfords2_4", "langfords3_9", "langfords3_10" })
+    public String file;
+
+    @Benchmark
+    public Object readBinaryCSP() {
+        return kernels.read(csp(file));
+    }
+}
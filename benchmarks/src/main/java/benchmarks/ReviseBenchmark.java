@@ -0,0 +1,39 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * One round of arc revisions after a left (var = val) or right (var != val) branch.
+ * Each invocation also opens and undoes a trail level
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviseBenchmark extends KernelBenchmark {
+
+    @Param({ "8Queens", "10Queens", "FinnishSudoku", "langfords3_10" })
+    public String file;
+
+    @Param({ "0" })
+    public int var;
+
+    @Setup
+    public void setUp() {
+        kernels.load(csp(file));
+    }
+
+    @Benchmark
+    public int reviseForBranchLeft() {
+        return kernels.reviseLeft(var);
+    }
+
+    @Benchmark
+    public int reviseForBranchRight() {
+        return kernels.reviseRight(var);
+    }
+}
@@ -0,0 +1,36 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Full searches for the first solution, from an already compiled problem
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolveBenchmark extends KernelBenchmark {
+
+    @Param({ "8Queens", "10Queens", "FinnishSudoku", "SimonisSudoku" })
+    public String file;
+
+    @Param({ "fc", "mac" })
+    public String algorithm;
+
+    @Param({ "sdf" })
+    public String varOrder;
+
+    @Setup
+    public void setUp() {
+        kernels.load(csp(file));
+    }
+
+    @Benchmark
+    public long solve() {
+        return kernels.solve(algorithm, varOrder);
+    }
+}
@@ -0,0 +1,230 @@
+import java.util.*;
+
+/**
+ * Generalised arc consistency for allDifferent over a clique of != constraints,
+ * following Regin's matching algorithm. A value is kept when its edge belongs to
+ * some maximum matching between the variables and the values: it is matched, lies
+ * on an alternating path from a free value, or lies in a strongly connected
+ * component of the residual graph.
+ * The matching is not trailed, it is repaired on each call from the current domains.
+ * Instances hold scratch state and belong to a single solver.
+ */
+public class AllDifferent {
+
+    private final int[] vars;
+    private final int minValue;
+    private final int noValues;
+
+    // Current matching, value indices are offset by minValue
+    private final int[] varMatch;
+    private final int[] valMatch;
+
+    // Augmenting path search
+    private final int[] visited;
+    private int stamp = 0;
+
+    // Values reachable from a free value, and the variables reached through them
+    private final boolean[] reachedVal;
+    private final boolean[] reachedVar;
+    private final int[] bfs;
+
+    // Tarjan's SCC over the residual graph, nodes are vars then values
+    private final int[] index;
+    private final int[] low;
+    private final int[] component;
+    private final boolean[] onStack;
+    private final int[] stack;
+    private int stackSize;
+    private int counter;
+    private int components;
+
+    private final ArrayList<Variable> varList;
+
+    /**
+     * Constructor over the variables of one solver
+     */
+    public AllDifferent(int[] vars, ArrayList<Variable> varList) {
+        this.vars = vars;
+        this.varList = varList;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int v : vars) {
+            Domain d = varList.get(v).getDomain();
+            min = Math.min(min, d.getLB());
+            max = Math.max(max, d.getUB());
+        }
+        this.minValue = min;
+        this.noValues = Math.max(0, max - min + 1);
+
+        int k = vars.length;
+        this.varMatch = new int[k];
+        this.valMatch = new int[noValues];
+        Arrays.fill(varMatch, -1);
+        Arrays.fill(valMatch, -1);
+        this.visited = new int[noValues];
+        this.reachedVal = new boolean[noValues];
+        this.reachedVar = new boolean[k];
+        this.bfs = new int[noValues];
+        this.index = new int[k + noValues];
+        this.low = new int[k + noValues];
+        this.component = new int[k + noValues];
+        this.onStack = new boolean[k + noValues];
+        this.stack = new int[k + noValues];
+    }
+
+    /**
+     * Getters
+     */
+
+    public int[] getVars() {
+        return vars;
+    }
+
+    /**
+     * Prune every value without a support, queueing the changed variables.
+     * Returns false if the variables cannot all take different values
+     */
+    public boolean propagate(Trail trail, PropagationQueue queue) {
+        int k = vars.length;
+
+        // Drop the pairs whose value has been pruned since the last call
+        for (int i = 0; i < k; i++) {
+            int w = varMatch[i];
+            if (w >= 0 && !domain(i).contains(w + minValue)) {
+                varMatch[i] = -1;
+                valMatch[w] = -1;
+            }
+        }
+        for (int i = 0; i < k; i++) {
+            if (varMatch[i] < 0) {
+                stamp++;
+                if (!augment(i)) {
+                    return false;
+                }
+            }
+        }
+
+        // Alternating paths from the free values
+        Arrays.fill(reachedVal, false);
+        Arrays.fill(reachedVar, false);
+        int head = 0;
+        int tail = 0;
+        for (int w = 0; w < noValues; w++) {
+            if (valMatch[w] < 0) {
+                reachedVal[w] = true;
+                bfs[tail++] = w;
+            }
+        }
+        while (head < tail) {
+            int value = bfs[head++] + minValue;
+            for (int i = 0; i < k; i++) {
+                if (!reachedVar[i] && domain(i).contains(value)) {
+                    reachedVar[i] = true;
+                    int w = varMatch[i];
+                    if (!reachedVal[w]) {
+                        reachedVal[w] = true;
+                        bfs[tail++] = w;
+                    }
+                }
+            }
+        }
+
+        // Strongly connected components of the residual graph
+        Arrays.fill(index, -1);
+        Arrays.fill(onStack, false);
+        stackSize = 0;
+        counter = 0;
+        components = 0;
+        for (int node = 0; node < k + noValues; node++) {
+            if (index[node] < 0) {
+                strongConnect(node);
+            }
+        }
+
+        for (int i = 0; i < k; i++) {
+            Variable var = varList.get(vars[i]);
+            Domain d = var.getDomain();
+            boolean changed = false;
+            for (int value = d.first(); value != Domain.NONE; value = d.next(value)) {
+                int w = value - minValue;
+                if (w == varMatch[i] || reachedVal[w] || component[i] == component[k + w]) {
+                    continue;
+                }
+                var.prune(value, trail);
+                changed = true;
+            }
+            if (changed) {
+                queue.add(vars[i]);
+            }
+        }
+        return true;
+    }
+
+    private Domain domain(int i) {
+        return varList.get(vars[i]).getDomain();
+    }
+
+    /**
+     * Find an augmenting path from the free variable i
+     */
+    private boolean augment(int i) {
+        Domain d = domain(i);
+        for (int value = d.first(); value != Domain.NONE; value = d.next(value)) {
+            int w = value - minValue;
+            if (visited[w] == stamp) {
+                continue;
+            }
+            visited[w] = stamp;
+            if (valMatch[w] < 0 || augment(valMatch[w])) {
+                varMatch[i] = w;
+                valMatch[w] = i;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tarjan's visit. A variable points at its matched value, a value points at
+     * the other variables whose domain holds it
+     */
+    private void strongConnect(int node) {
+        int k = vars.length;
+        index[node] = counter;
+        low[node] = counter;
+        counter++;
+        stack[stackSize++] = node;
+        onStack[node] = true;
+
+        if (node < k) {
+            int w = varMatch[node];
+            visit(node, k + w);
+        } else {
+            int value = node - k + minValue;
+            for (int i = 0; i < k; i++) {
+                if (varMatch[i] != node - k && domain(i).contains(value)) {
+                    visit(node, i);
+                }
+            }
+        }
+
+        if (low[node] == index[node]) {
+            int top;
+            do {
+                top = stack[--stackSize];
+                onStack[top] = false;
+                component[top] = components;
+            } while (top != node);
+            components++;
+        }
+    }
+
+    private void visit(int node, int next) {
+        if (index[next] < 0) {
+            strongConnect(next);
+            low[node] = Math.min(low[node], low[next]);
+        } else if (onStack[next]) {
+            low[node] = Math.min(low[node], index[next]);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.*;
+
+/**
+ * Model analysis finding groups of variables that must all take different values.
+ * Constraints whose relation is exactly != over their bounds form a disequality
+ * graph, which is covered greedily with cliques; every clique is an allDifferent
+ */
+public class AllDifferentDetector {
+
+    /**
+     * Check if the relation allows exactly the tuples (a, b) with a != b
+     */
+    public static boolean isDisequality(Relation relation) {
+        long[][] rows = relation.getForwardRows();
+        int lb = relation.getSecondLB();
+        for (int a = relation.getFirstLB(); a <= relation.getFirstUB(); a++) {
+            long[] row = rows[a - relation.getFirstLB()];
+            for (int b = lb; b <= relation.getSecondUB(); b++) {
+                int i = b - lb;
+                boolean allowed = (row[i >>> 6] & (1L << i)) != 0;
+                if (allowed == (a == b)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scopes of the allDifferent constraints with at least minSize variables.
+     * Every uncovered disequality edge (x, y) seeds a clique, which is extended
+     * with the smallest variable adjacent to all its members until none is left
+     */
+    public static ArrayList<int[]> findCliques(ConstraintGraph graph, int minSize) {
+
+        int n = graph.getNoVariables();
+        BitSet[] adjacent = new BitSet[n];
+        BitSet[] covered = new BitSet[n];
+        for (int v = 0; v < n; v++) {
+            adjacent[v] = new BitSet(n);
+            covered[v] = new BitSet(n);
+        }
+        for (int c = 0; c < graph.getNoConstraints(); c++) {
+            Constraint con = graph.getConstraint(c);
+            int x = con.getFirstVar();
+            int y = con.getSecondVar();
+            if (x != y && isDisequality(con.getRelation())) {
+                adjacent[x].set(y);
+                adjacent[y].set(x);
+            }
+        }
+
+        ArrayList<int[]> cliques = new ArrayList<int[]>();
+        int[] members = new int[n];
+        for (int x = 0; x < n; x++) {
+            for (int y = adjacent[x].nextSetBit(x + 1); y >= 0; y = adjacent[x].nextSetBit(y + 1)) {
+                if (covered[x].get(y)) {
+                    continue;
+                }
+
+                // Candidates stay adjacent to every member
+                int size = 0;
+                members[size++] = x;
+                members[size++] = y;
+                BitSet candidates = (BitSet) adjacent[x].clone();
+                candidates.and(adjacent[y]);
+                for (int z = candidates.nextSetBit(0); z >= 0; z = candidates.nextSetBit(0)) {
+                    members[size++] = z;
+                    candidates.and(adjacent[z]);
+                }
+
+                for (int i = 0; i < size; i++) {
+                    for (int j = 0; j < size; j++) {
+                        covered[members[i]].set(members[j]);
+                    }
+                }
+                if (size >= minSize) {
+                    int[] clique = Arrays.copyOf(members, size);
+                    Arrays.sort(clique);
+                    cliques.add(clique);
+                }
+            }
+        }
+        return cliques;
+    }
+}
@@ -1,41 +1,65 @@
 
 public class Arc {
 
-    private final Variable firstVar;
-    private final Variable secondVar;
+    private final int id;
+    private final int firstVar;
+    private final int secondVar;
+    private final Constraint constraint;
+    private final long[][] supports;
+    private final int offset;
 
     /**
      * Constructers
+     * The domain of firstVar is revised against secondVar through the constraint.
+     * Constraint c owns arcs 2c (first against second) and 2c + 1 (second against first)
      */
-    public Arc(Variable firstVar, Variable secondVar) {
+    public Arc(int id, int firstVar, int secondVar, Constraint constraint) {
+        this.id = id;
         this.firstVar = firstVar;
         this.secondVar = secondVar;
+        this.constraint = constraint;
+        Relation relation = constraint.getRelation();
+        if ((id & 1) == 0) {
+            this.supports = relation.getForwardRows();
+            this.offset = relation.getFirstLB();
+        } else {
+            this.supports = relation.getBackwardRows();
+            this.offset = relation.getSecondLB();
+        }
     }
 
     /**
      * Getters
      */
 
-    public Variable getFirstVar() {
+    public int getId() {
+        return this.id;
+    }
+
+    public int getFirstVar() {
         return this.firstVar;
     }
 
-    public Variable getSecondVar() {
+    public int getSecondVar() {
         return this.secondVar;
     }
 
+    public Constraint getConstraint() {
+        return this.constraint;
+    }
+
     /**
-     * Check if variables have the same id
+     * Values of secondVar supporting value a of firstVar, as bits aligned with its domain
      */
-    public boolean equals(Arc a) {
-        return this.firstVar.equals(a.getFirstVar()) && this.secondVar.equals(a.getSecondVar());
+    public long[] getSupports(int a) {
+        return this.supports[a - this.offset];
     }
 
     /**
-     * Swapping first and second var
+     * Index of the constraint in the graph, shared by the two arcs of a constraint
      */
-    public Arc reverse() {
-        return new Arc(this.secondVar, this.firstVar);
+    public int getConstraintIndex() {
+        return this.id >> 1;
     }
 
 }
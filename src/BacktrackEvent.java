@@ -0,0 +1,23 @@
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder event for undoing one left decision
+ */
+@Name("constraintsolver.Backtrack")
+@Label("Backtrack")
+@Category("Constraint Solver")
+@Description("A left decision var = val undone, with the values restored from the trail")
+public class BacktrackEvent extends Event {
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Variable")
+    int var;
+
+    @Label("Value")
+    int val;
+
+    @Label("Values Restored")
+    int restored;
+}
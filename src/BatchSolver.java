@@ -0,0 +1,264 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Solves many instances in one JVM, writing one JSON line per instance as soon as
+ * it finishes. Instances are the .csp files of a directory, or the lines of a
+ * manifest: a file, relative to the manifest, optionally followed by its own
+ * algorithm, VarOrder and ValOrder.
+ * Each instance gets a virtual thread which reads its memory-mapped file, then
+ * hands the compile and search to a pool of one platform thread per worker, so
+ * that the CPU-bound searches never outnumber the workers, and writes the result.
+ * At most IN_FLIGHT_PER_WORKER instances per worker are in flight, which bounds
+ * the virtual threads and the parsed problems waiting for a worker.
+ */
+public class BatchSolver {
+
+    private static final int IN_FLIGHT_PER_WORKER = 4;
+
+    // Settings shared by every instance
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private boolean allDifferent = false;
+    private long maxNodes = 0;
+    private long maxRevisions = 0;
+    private long maxTimeMs = 0;
+
+    private PrintStream out = System.out;
+    private final ConcurrentHashMap<String, Integer> counts = new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * An instance file and the settings it is solved with
+     */
+    private static class Instance {
+        String file;
+        String algorithm;
+        String varOrder;
+        String valOrder;
+
+        Instance(String file, String algorithm, String varOrder, String valOrder) {
+            this.file = file;
+            this.algorithm = algorithm;
+            this.varOrder = varOrder;
+            this.valOrder = valOrder;
+        }
+    }
+
+    public static void main(String[] args) {
+
+        if (args.length < 4 || !valid(args[1], args[2], args[3])) {
+            System.out.println("Usage: java BatchSolver <dir|manifest> <algorithm> <VarOrder> <ValOrder>"
+                    + " [-workers <n>] [-out <file>] [-alldiff] [-max-nodes <n>] [-max-revisions <n>]"
+                    + " [-max-time <s>]");
+            System.out.println("algorithm: fc, mac, mac-rm, fc-cbj or mac-cbj");
+            return;
+        }
+
+        BatchSolver batch = new BatchSolver();
+        String outFile = null;
+        for (int i = 4; i < args.length; i++) {
+            if (args[i].equals("-workers") && i + 1 < args.length && args[i + 1].matches("[1-9][0-9]*")) {
+                batch.workers = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-out") && i + 1 < args.length) {
+                outFile = args[++i];
+            } else if (args[i].equals("-alldiff")) {
+                batch.allDifferent = true;
+            } else if (args[i].equals("-max-nodes") && i + 1 < args.length && args[i + 1].matches("[0-9]+")) {
+                batch.maxNodes = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-max-revisions") && i + 1 < args.length && args[i + 1].matches("[0-9]+")) {
+                batch.maxRevisions = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-max-time") && i + 1 < args.length
+                    && args[i + 1].matches("[0-9]+(\\.[0-9]+)?")) {
+                batch.maxTimeMs = (long) (Double.parseDouble(args[++i]) * 1000);
+            } else {
+                System.out.println("Unknown option: " + args[i]);
+                return;
+            }
+        }
+
+        try {
+            List<Instance> instances = list(Paths.get(args[0]), args[1], args[2], args[3]);
+            if (outFile == null) {
+                batch.run(instances);
+            } else {
+                try (PrintStream ps = new PrintStream(new BufferedOutputStream(new FileOutputStream(outFile)), true)) {
+                    batch.out = ps;
+                    batch.run(instances);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        } catch (InterruptedException e) {
+            System.err.println(e);
+        }
+    }
+
+    /**
+     * The .csp files of a directory in name order, or the instances of a manifest
+     */
+    private static List<Instance> list(Path path, String algorithm, String varOrder, String valOrder)
+            throws IOException {
+        ArrayList<Instance> instances = new ArrayList<Instance>();
+        if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(path, "*.csp")) {
+                for (Path file : files) {
+                    instances.add(new Instance(file.toString(), algorithm, varOrder, valOrder));
+                }
+            }
+            instances.sort(Comparator.comparing(instance -> instance.file));
+            return instances;
+        }
+
+        // Manifest lines: <file> [<algorithm> <VarOrder> <ValOrder>], # starts a comment
+        Path dir = path.toAbsolutePath().getParent();
+        List<String> lines = Files.readAllLines(path);
+        for (int n = 0; n < lines.size(); n++) {
+            String line = lines.get(n).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            if (fields.length != 1 && (fields.length != 4 || !valid(fields[1], fields[2], fields[3]))) {
+                throw new IllegalArgumentException(path + ":" + (n + 1) + ": expected <file> [<algorithm> <VarOrder>"
+                        + " <ValOrder>] but got: " + line);
+            }
+            String file = dir.resolve(fields[0]).toString();
+            instances.add(fields.length == 1 ? new Instance(file, algorithm, varOrder, valOrder)
+                    : new Instance(file, fields[1], fields[2], fields[3]));
+        }
+        return instances;
+    }
+
+    /**
+     * Check the names against those the Solver accepts
+     */
+    private static boolean valid(String algorithm, String varOrder, String valOrder) {
+        return Solver.ALGORITHMS.contains(algorithm) && Solver.VAR_ORDERS.contains(varOrder)
+                && Solver.VAL_ORDERS.contains(valOrder);
+    }
+
+    /**
+     * Solve every instance, then print a summary of the statuses to standard error
+     */
+    private void run(List<Instance> instances) throws InterruptedException {
+        long start = System.nanoTime();
+        ExecutorService cpu = Executors.newFixedThreadPool(workers);
+        Semaphore inFlight = new Semaphore(workers * IN_FLIGHT_PER_WORKER);
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Instance instance : instances) {
+                inFlight.acquire();
+                threads.submit(() -> {
+                    try {
+                        // println is atomic and the stream flushes every line
+                        out.println(solve(instance, cpu));
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            cpu.shutdown();
+        }
+
+        StringBuilder summary = new StringBuilder();
+        summary.append(instances.size()).append(" instances in ").append((System.nanoTime() - start) / 1000000)
+                .append(" ms");
+        for (String status : new String[] { "SAT", "UNSAT", "UNKNOWN", "ERROR" }) {
+            summary.append(' ').append(status).append('=').append(counts.getOrDefault(status, 0));
+        }
+        System.err.println(summary);
+    }
+
+    /**
+     * Read the instance on the calling virtual thread, then wait for it to be solved
+     * on the CPU pool and return its JSON line. Read errors are detailed on standard
+     * error by the reader
+     */
+    private String solve(Instance instance, ExecutorService cpu) {
+        long start = System.nanoTime();
+        if (!Files.isReadable(Paths.get(instance.file))) {
+            return error(instance, "cannot read file");
+        }
+        BinaryCSP csp;
+        try {
+            csp = new BinaryCSPReader().readBinaryCSP(instance.file);
+        } catch (RuntimeException e) {
+            return error(instance, "cannot parse file: " + e);
+        }
+        if (csp == null) {
+            return error(instance, "cannot parse file");
+        }
+        double loadMs = (System.nanoTime() - start) / 1e6;
+
+        try {
+            return cpu.submit(() -> solve(instance, csp, loadMs)).get();
+        } catch (ExecutionException e) {
+            return error(instance, e.getCause().toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(instance, "interrupted");
+        }
+    }
+
+    /**
+     * Compile and search on a CPU worker
+     */
+    private String solve(Instance instance, BinaryCSP csp, double loadMs) {
+        long start = System.nanoTime();
+        Solver solver = new Solver(csp, instance.varOrder, instance.valOrder);
+        solver.setAllDifferent(allDifferent);
+        solver.setNodeLimit(maxNodes);
+        solver.setRevisionLimit(maxRevisions);
+        solver.setTimeLimit(maxTimeMs);
+        SolverResult result = solver.run(instance.algorithm);
+        double solveMs = (System.nanoTime() - start) / 1e6;
+        counts.merge(result.getStatus().name(), 1, Integer::sum);
+
+        StringBuilder json = new StringBuilder(128);
+        json.append("{\"file\":").append(quote(instance.file));
+        json.append(",\"algorithm\":").append(quote(instance.algorithm));
+        json.append(",\"varOrder\":").append(quote(instance.varOrder));
+        json.append(",\"valOrder\":").append(quote(instance.valOrder));
+        json.append(",\"status\":").append(quote(result.getStatus().name()));
+        json.append(",\"stopped\":").append(result.getStopReason() == null ? "null" : quote(result.getStopReason()));
+        json.append(",\"solution\":");
+        int[] solution = result.getSolution();
+        if (solution == null) {
+            json.append("null");
+        } else {
+            json.append('[');
+            for (int i = 0; i < solution.length; i++) {
+                json.append(i > 0 ? "," : "").append(solution[i]);
+            }
+            json.append(']');
+        }
+        json.append(",\"searchNodes\":").append(result.getSearchNodes());
+        json.append(",\"arcRevisions\":").append(result.getArcRevisions());
+        json.append(String.format(Locale.ROOT, ",\"loadMs\":%.3f,\"solveMs\":%.3f}", loadMs, solveMs));
+        return json.toString();
+    }
+
+    private String error(Instance instance, String message) {
+        counts.merge("ERROR", 1, Integer::sum);
+        return "{\"file\":" + quote(instance.file) + ",\"status\":\"ERROR\",\"error\":" + quote(message) + "}";
+    }
+
+    /**
+     * JSON string literal
+     */
+    private static String quote(String s) {
+        StringBuilder quoted = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,147 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+
+/**
+ * On-disk cache of parsed BinaryCSPs in a compact binary format.
+ * Entries are named after the SHA-256 of the source file, so an edited file
+ * never hits a stale entry. Layout, as native-order ints:
+ * magic, version, n, (lb, ub) * n, no. constraints,
+ * then per constraint var1, var2, no. tuples, first values, second values
+ */
+public class BinaryCSPCache {
+
+    private static final int MAGIC = 0x42435350; // "BCSP"
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".bcsp";
+
+    private final Path directory;
+
+    /**
+     * Constructor
+     */
+    public BinaryCSPCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Hex SHA-256 of the content of a file
+     */
+    public static String contentKey(Path source) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            digest.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Cached problem for the key, or null if there is no valid entry
+     */
+    public BinaryCSP load(String key) {
+        Path file = directory.resolve(key + SUFFIX);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            IntBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.nativeOrder()).asIntBuffer();
+            if (in.get() != MAGIC || in.get() != VERSION) {
+                return null;
+            }
+            int n = count(in, 2);
+            int[][] domainBounds = new int[n][2];
+            for (int i = 0; i < n; i++) {
+                domainBounds[i][0] = in.get();
+                domainBounds[i][1] = in.get();
+            }
+            int m = count(in, 3);
+            ArrayList<BinaryConstraint> constraints = new ArrayList<BinaryConstraint>(m);
+            TupleInterner interner = new TupleInterner();
+            int[] firstValues = new int[0];
+            int[] secondValues = new int[0];
+            for (int c = 0; c < m; c++) {
+                int var1 = in.get();
+                int var2 = in.get();
+                if (var1 < 0 || var1 >= n || var2 < 0 || var2 >= n) {
+                    return null;
+                }
+                int count = count(in, 2);
+                if (count > firstValues.length) {
+                    firstValues = new int[count];
+                    secondValues = new int[count];
+                }
+                in.get(firstValues, 0, count);
+                in.get(secondValues, 0, count);
+                int[][] tuples = interner.intern(firstValues, secondValues, count);
+                constraints.add(new BinaryConstraint(var1, var2, tuples[0], tuples[1]));
+            }
+            return new BinaryCSP(domainBounds, constraints);
+        } catch (IOException | BufferUnderflowException e) {
+            // A damaged or truncated entry is treated as a miss and rewritten
+            return null;
+        }
+    }
+
+    /**
+     * Read a count of items of size ints each, checked against what is left of
+     * the entry before anything is allocated for them
+     */
+    private static int count(IntBuffer in, int size) {
+        int count = in.get();
+        if (count < 0 || (long) count * size > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+
+    /**
+     * Write the entry for the key, replacing any previous one atomically
+     */
+    public void store(String key, BinaryCSP csp) throws IOException {
+        Files.createDirectories(directory);
+
+        long ints = 4 + 2L * csp.getNoVariables();
+        for (BinaryConstraint bc : csp.getConstraints()) {
+            ints += 3 + 2L * bc.getNoTuples();
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(Math.toIntExact(ints * 4)).order(ByteOrder.nativeOrder());
+        IntBuffer out = bytes.asIntBuffer();
+        out.put(MAGIC).put(VERSION).put(csp.getNoVariables());
+        for (int i = 0; i < csp.getNoVariables(); i++) {
+            out.put(csp.getLB(i)).put(csp.getUB(i));
+        }
+        out.put(csp.getConstraints().size());
+        for (BinaryConstraint bc : csp.getConstraints()) {
+            out.put(bc.getFirstVar()).put(bc.getSecondVar()).put(bc.getNoTuples());
+            out.put(bc.getFirstValues()).put(bc.getSecondValues());
+        }
+
+        // Write to a temporary file first so readers never see a partial entry
+        Path tmp = Files.createTempFile(directory, key, ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+        try {
+            Files.move(tmp, directory.resolve(key + SUFFIX), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+}
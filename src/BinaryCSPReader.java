@@ -1,40 +1,61 @@
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
 import java.util.*;
+import javax.management.*;
 
 /**
  * A reader tailored for binary extensional CSPs.
- * It is created from a FileReader and a StreamTokenizer
+ * It memory-maps the file and scans its bytes directly into primitive arrays
  */
 public final class BinaryCSPReader {
-  private FileReader inFR;
-  private StreamTokenizer in;
+  private static final int TT_EOF = -1;
+  private static final int TT_NUMBER = -2;
+  private static final int TT_WORD = -3;
+
+  private ByteBuffer in;
+  private String fileName;
+  private int pos;
+  private int start; // offset of the last token
+  private int nval;
+  private BinaryCSPCache cache = null;
 
   /**
    * Main (for testing)
    */
   public static void main(String[] args) {
 
+    // Many instances in one JVM
+    if (args.length > 0 && args[0].equals("-batch")) {
+      BatchSolver.main(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+
     // Validate the number of parameters
-    if (args.length != 4) {
-      System.out.println("Usage: java Main <file.csp> <algorithm> <VarOrder> <ValOrder>");
+    if (args.length < 4) {
+      System.out.println("Usage: java Main <file.csp> <algorithm> <VarOrder> <ValOrder> [-parallel <threads>]"
+          + " [-all] [-limit <n>] [-out <file>] [-cache <dir>] [-alldiff] [-jmx] [-seed <n>]"
+          + " [-restarts luby|geometric] [-restart-base <n>] [-restart-factor <f>] [-random-ties]"
+          + " [-nogoods] [-nogood-capacity <n>] [-max-nodes <n>] [-max-revisions <n>] [-max-time <s>]");
       return;
     }
 
     // Validation algorithm
-    if (!args[1].matches("fc|mac")) {
-      System.out.println("Usage: fc or mac for args[1]");
+    if (!Solver.ALGORITHMS.contains(args[1]) && !args[1].equals("portfolio")) {
+      System.out.println("Usage: fc, mac, mac-rm, fc-cbj, mac-cbj or portfolio for args[1]");
       return;
     }
 
     // Validation varOrder
-    if (!args[2].matches("asc|sdf")) {
-      System.out.println("Usage: asc or sdf for args[2]");
+    if (!Solver.VAR_ORDERS.contains(args[2])) {
+      System.out.println("Usage: asc, sdf, wdeg, dom/wdeg or dom/deg for args[2]");
       return;
     }
 
     // Validation valOrder
-    if (!args[3].contains("asc")) {
-      System.out.println("Usage: asc for args[3]");
+    if (!Solver.VAL_ORDERS.contains(args[3])) {
+      System.out.println("Usage: asc, desc, lcv or random for args[3]");
       return;
     }
 
@@ -43,16 +64,206 @@ public final class BinaryCSPReader {
     String varOrder = args[2];
     String valOrder = args[3];
 
+    // Options
+    int parallel = 0;
+    boolean all = false;
+    long limit = 0;
+    String outFile = null;
+    String cacheDir = null;
+    boolean allDifferent = false;
+    boolean jmx = false;
+    long seed = 0;
+    String restarts = "none";
+    long restartBase = 100;
+    double restartFactor = 1.5;
+    boolean randomTies = false;
+    boolean nogoods = false;
+    int nogoodCapacity = 100000;
+    long maxNodes = 0;
+    long maxRevisions = 0;
+    long maxTimeMs = 0;
+    for (int i = 4; i < args.length; i++) {
+      if (args[i].equals("-parallel") && i + 1 < args.length && args[i + 1].matches("[0-9]+")) {
+        parallel = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-all")) {
+        all = true;
+      } else if (args[i].equals("-limit") && i + 1 < args.length && args[i + 1].matches("[0-9]+")) {
+        limit = Long.parseLong(args[++i]);
+      } else if (args[i].equals("-out") && i + 1 < args.length) {
+        outFile = args[++i];
+      } else if (args[i].equals("-cache") && i + 1 < args.length) {
+        cacheDir = args[++i];
+      } else if (args[i].equals("-alldiff")) {
+        allDifferent = true;
+      } else if (args[i].equals("-jmx")) {
+        jmx = true;
+      } else if (args[i].equals("-seed") && i + 1 < args.length && args[i + 1].matches("-?[0-9]+")) {
+        seed = Long.parseLong(args[++i]);
+      } else if (args[i].equals("-restarts") && i + 1 < args.length && args[i + 1].matches("luby|geometric")) {
+        restarts = args[++i];
+      } else if (args[i].equals("-restart-base") && i + 1 < args.length && args[i + 1].matches("[0-9]+")) {
+        restartBase = Long.parseLong(args[++i]);
+      } else if (args[i].equals("-restart-factor") && i + 1 < args.length
+          && args[i + 1].matches("[0-9]+(\\.[0-9]+)?")) {
+        restartFactor = Double.parseDouble(args[++i]);
+        // Geometric cutoffs must grow for the search to stay complete
+        if (restartFactor <= 1) {
+          System.out.println("-restart-factor must be greater than 1");
+          return;
+        }
+      } else if (args[i].equals("-random-ties")) {
+        randomTies = true;
+      } else if (args[i].equals("-nogoods")) {
+        nogoods = true;
+      } else if (args[i].equals("-nogood-capacity") && i + 1 < args.length && args[i + 1].matches("[0-9]+")) {
+        nogoodCapacity = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-max-nodes") && i + 1 < args.length && args[i + 1].matches("[0-9]+")) {
+        maxNodes = Long.parseLong(args[++i]);
+      } else if (args[i].equals("-max-revisions") && i + 1 < args.length && args[i + 1].matches("[0-9]+")) {
+        maxRevisions = Long.parseLong(args[++i]);
+      } else if (args[i].equals("-max-time") && i + 1 < args.length
+          && args[i + 1].matches("[0-9]+(\\.[0-9]+)?")) {
+        maxTimeMs = (long) (Double.parseDouble(args[++i]) * 1000);
+      } else {
+        System.out.println("Unknown option: " + args[i]);
+        return;
+      }
+    }
+
     // Instantiate a BinaryCSP through BinaryCSPReader
     BinaryCSPReader bcspr = new BinaryCSPReader();
+    if (cacheDir != null) {
+      bcspr.setCache(new BinaryCSPCache(Paths.get(cacheDir)));
+    }
     BinaryCSP bcsp = bcspr.readBinaryCSP(fileName);
+    if (bcsp == null) {
+      return;
+    }
+
+    if (all && algorithm.equals("portfolio")) {
+      System.out.println("-all is not supported by portfolio");
+      return;
+    }
+    if (!restarts.equals("none") && (all || parallel > 0 || algorithm.equals("portfolio"))) {
+      System.out.println("-restarts is not supported with -all, -parallel or portfolio");
+      return;
+    }
+    if (nogoods && (all || parallel > 0 || algorithm.equals("portfolio"))) {
+      System.out.println("-nogoods is not supported with -all, -parallel or portfolio");
+      return;
+    }
+    if ((maxNodes > 0 || maxRevisions > 0 || maxTimeMs > 0) && (parallel > 0 || algorithm.equals("portfolio"))) {
+      System.out.println("-max-nodes, -max-revisions and -max-time are not supported with -parallel or portfolio");
+      return;
+    }
+
+    // Stream every solution as it is found
+    SolutionWriter writer = null;
+    if (all) {
+      try {
+        writer = outFile == null ? new SolutionWriter(System.out) : new SolutionWriter(outFile);
+      } catch (IOException e) {
+        System.err.println(e);
+        return;
+      }
+    }
+
+    // Split the search tree over worker threads
+    if (parallel > 0 && !algorithm.equals("portfolio")) {
+      ParallelSearch search = new ParallelSearch(bcsp, algorithm, varOrder, valOrder, all, parallel);
+      search.setSolutionSink(writer);
+      search.setMaxSolutions(limit);
+      search.setAllDifferent(allDifferent);
+      search.setSeed(seed);
+      search.run();
+      closeWriter(writer);
+      System.out.println(search.getResult());
+      search.printStatistics();
+      search.printSolutions();
+      return;
+    }
 
     // Instantiate a Solver to run solver
-    Solver solver = new Solver(bcsp, varOrder, valOrder);
-    solver.run(algorithm);
+    Solver solver;
+    if (algorithm.equals("portfolio")) {
+      // Race every configuration, varOrder and valOrder are chosen by the portfolio
+      Portfolio portfolio = new Portfolio(bcsp);
+      portfolio.addDefaultConfigs();
+      portfolio.setAllDifferent(allDifferent);
+      try {
+        solver = portfolio.run(Runtime.getRuntime().availableProcessors());
+      } catch (InterruptedException e) {
+        System.out.println(e);
+        return;
+      }
+      // Every configuration failed with an exception
+      if (solver == null) {
+        System.out.println("portfolio: no solver finished");
+        return;
+      }
+      System.out.println(solver.getResult());
+    } else {
+      solver = new Solver(bcsp, varOrder, valOrder);
+      solver.setAllSolutions(all);
+      solver.setMaxSolutions(limit);
+      solver.setAllDifferent(allDifferent);
+      solver.setSeed(seed);
+      solver.setRestarts(restarts, restartBase, restartFactor);
+      solver.setRandomTies(randomTies);
+      solver.setNogoods(nogoods ? nogoodCapacity : 0);
+      solver.setNodeLimit(maxNodes);
+      solver.setRevisionLimit(maxRevisions);
+      solver.setTimeLimit(maxTimeMs);
+      if (writer != null) {
+        solver.setSolutionSink(writer);
+      }
+      // Expose the live counters while the search runs
+      SolverMonitor monitor = null;
+      if (jmx) {
+        try {
+          monitor = SolverMonitor.register(solver, new File(fileName).getName());
+        } catch (JMException e) {
+          System.out.println(e);
+        }
+      }
+      SolverResult result = solver.run(algorithm);
+      if (monitor != null) {
+        monitor.unregister();
+      }
+      closeWriter(writer);
+      System.out.println(result);
+      if (all) {
+        System.out.println("solutions=" + solver.getSolutionCount());
+      }
+      if (!restarts.equals("none")) {
+        System.out.println("restarts=" + solver.getRestarts());
+      }
+      if (algorithm.endsWith("-cbj")) {
+        System.out.println("skippedLevels=" + solver.getSkippedLevels());
+      }
+      if (solver.getNogoods() != null) {
+        NogoodStore store = solver.getNogoods();
+        System.out.println("nogoods=" + store.getRecorded() + " stored=" + store.size() + " evicted="
+            + store.getEvicted() + " prunings=" + store.getPrunings());
+      }
+    }
     solver.printSolutions();
   }
 
+  /**
+   * Flush the streamed solutions
+   */
+  private static void closeWriter(SolutionWriter writer) {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.close();
+    } catch (IOException e) {
+      System.err.println(e);
+    }
+  }
+
   /**
    * File format:
    * <no. vars>
@@ -63,74 +274,181 @@ public final class BinaryCSPReader {
    * c(<varno>, <varno>)
    * binary tuples
    * <domain val>, <domain val>
+   * Returns null if the file cannot be read or is malformed, the error is printed
+   * to standard error
    */
   public BinaryCSP readBinaryCSP(String fn) {
+    if (cache == null) {
+      return parse(fn);
+    }
+
+    // Skip parsing when the same content has been read before
+    String key;
     try {
-      inFR = new FileReader(fn);
-      in = new StreamTokenizer(inFR);
-      in.ordinaryChar('(');
-      in.ordinaryChar(')');
-      in.nextToken(); // n
-      int n = (int) in.nval;
+      key = BinaryCSPCache.contentKey(Paths.get(fn));
+    } catch (IOException e) {
+      System.err.println(e);
+      return null;
+    }
+    BinaryCSP csp = cache.load(key);
+    if (csp == null) {
+      csp = parse(fn);
+      if (csp != null) {
+        try {
+          cache.store(key, csp);
+        } catch (IOException e) {
+          System.err.println(e);
+        }
+      }
+    }
+    return csp;
+  }
+
+  /**
+   * Use a cache of already parsed files, null to always parse
+   */
+  public void setCache(BinaryCSPCache cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Parse the text file
+   */
+  private BinaryCSP parse(String fn) {
+    try (FileChannel channel = FileChannel.open(Paths.get(fn), StandardOpenOption.READ)) {
+      // Files are mapped in one piece, so they must be smaller than 2GB
+      in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      fileName = fn;
+      pos = 0;
+      int n = nextNumber("the number of variables");
+      if (n < 0) {
+        throw error("negative number of variables " + n);
+      }
+      // Each variable takes at least two bytes for its bounds
+      if (n > in.limit() / 2) {
+        throw error(n + " variables do not fit in the file");
+      }
       int[][] domainBounds = new int[n][2];
       for (int i = 0; i < n; i++) {
-        in.nextToken(); // ith ub
-        domainBounds[i][0] = (int) in.nval;
-        in.nextToken(); // ','
-        in.nextToken();
-        domainBounds[i][1] = (int) in.nval;
+        domainBounds[i][0] = nextNumber("the lower bound of variable " + i);
+        domainBounds[i][1] = nextNumber("the upper bound of variable " + i);
       }
-      ArrayList<BinaryConstraint> constraints = readBinaryConstraints();
+      ArrayList<BinaryConstraint> constraints = readBinaryConstraints(n);
       BinaryCSP csp = new BinaryCSP(domainBounds, constraints);
       // TESTING:
       // System.out.println(csp) ;
-      inFR.close();
       return csp;
-    } catch (FileNotFoundException e) {
-      System.out.println(e);
     } catch (IOException e) {
-      System.out.println(e);
+      System.err.println(e);
+    } finally {
+      in = null;
+      fileName = null;
     }
     return null;
   }
 
   /**
-   *
+   * Reads the constraints into one pair of primitive arrays each
    */
-  private ArrayList<BinaryConstraint> readBinaryConstraints() {
+  private ArrayList<BinaryConstraint> readBinaryConstraints(int n) throws IOException {
     ArrayList<BinaryConstraint> constraints = new ArrayList<BinaryConstraint>();
+    TupleInterner interner = new TupleInterner();
+    int[] firstValues = new int[1024];
+    int[] secondValues = new int[1024];
 
-    try {
-      in.nextToken(); // 'c' or EOF
-      while (in.ttype != in.TT_EOF) {
-        // scope
-        in.nextToken(); // '('
-        in.nextToken(); // var
-        int var1 = (int) in.nval;
-        in.nextToken(); // ','
-        in.nextToken(); // var
-        int var2 = (int) in.nval;
-        in.nextToken(); // ')'
-
-        // tuples
-        ArrayList<BinaryTuple> tuples = new ArrayList<BinaryTuple>();
-        in.nextToken(); // 1st allowed val of 1st tuple
-        while (!"c".equals(in.sval) && (in.ttype != in.TT_EOF)) {
-          int val1 = (int) in.nval;
-          in.nextToken(); // ','
-          in.nextToken(); // 2nd val
-          int val2 = (int) in.nval;
-          tuples.add(new BinaryTuple(val1, val2));
-          in.nextToken(); // 1stallowed val of next tuple/c/EOF
+    int ttype = nextToken(); // 'c' or EOF
+    while (ttype != TT_EOF) {
+      // scope
+      int var1 = nextVariable(n);
+      int var2 = nextVariable(n);
+
+      // tuples
+      int count = 0;
+      ttype = nextToken(); // 1st allowed val of 1st tuple
+      while (ttype == TT_NUMBER) {
+        if (count == firstValues.length) {
+          firstValues = Arrays.copyOf(firstValues, count * 2);
+          secondValues = Arrays.copyOf(secondValues, count * 2);
         }
-        BinaryConstraint c = new BinaryConstraint(var1, var2, tuples);
-        constraints.add(c);
+        firstValues[count] = nval;
+        secondValues[count] = nextNumber("the second value of a tuple");
+        count++;
+        ttype = nextToken(); // 1st allowed val of next tuple/c/EOF
       }
+      // Constraints with the same tuples share the arrays
+      int[][] tuples = interner.intern(firstValues, secondValues, count);
+      BinaryConstraint c = new BinaryConstraint(var1, var2, tuples[0], tuples[1]);
+      constraints.add(c);
+    }
 
-      return constraints;
-    } catch (IOException e) {
-      System.out.println(e);
+    return constraints;
+  }
+
+  /**
+   * Scan the next token, which must be a number
+   */
+  private int nextNumber(String what) throws IOException {
+    if (nextToken() != TT_NUMBER) {
+      throw error("expected " + what);
     }
-    return null;
+    return nval;
+  }
+
+  /**
+   * Scan the next token, which must be a variable of the n declared
+   */
+  private int nextVariable(int n) throws IOException {
+    int var = nextNumber("a variable");
+    if (var < 0 || var >= n) {
+      throw error("variable " + var + " out of range 0.." + (n - 1));
+    }
+    return var;
+  }
+
+  /**
+   * Malformed input at the last token
+   */
+  private IOException error(String message) {
+    return new IOException(fileName + ": " + message + " at offset " + start);
+  }
+
+  /**
+   * Scan the next number or word from the mapped bytes.
+   * Separators ',', '(', ')' and white space are skipped and '/' starts a comment
+   * running to the end of the line, as with the default StreamTokenizer syntax
+   */
+  private int nextToken() {
+    int limit = in.limit();
+    while (pos < limit) {
+      byte b = in.get(pos);
+      if (b == '/') {
+        while (pos < limit && in.get(pos) != '\n' && in.get(pos) != '\r') {
+          pos++;
+        }
+      } else if (b == '-' || (b >= '0' && b <= '9')) {
+        start = pos;
+        boolean negative = b == '-';
+        if (negative) {
+          pos++;
+        }
+        int value = 0;
+        while (pos < limit && (b = in.get(pos)) >= '0' && b <= '9') {
+          value = value * 10 + (b - '0');
+          pos++;
+        }
+        nval = negative ? -value : value;
+        return TT_NUMBER;
+      } else if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z')) {
+        start = pos;
+        while (pos < limit && (((b = in.get(pos)) >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z'))) {
+          pos++;
+        }
+        return TT_WORD;
+      } else {
+        pos++;
+      }
+    }
+    start = limit;
+    return TT_EOF;
   }
 }
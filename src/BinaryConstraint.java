@@ -2,19 +2,36 @@ import java.util.*;
 
 public final class BinaryConstraint {
   private int firstVar, secondVar;
+  private int[] firstValues, secondValues;
   private ArrayList<BinaryTuple> tuples;
 
   public BinaryConstraint(int fv, int sv, ArrayList<BinaryTuple> t) {
     firstVar = fv;
     secondVar = sv;
     tuples = t;
+    firstValues = new int[t.size()];
+    secondValues = new int[t.size()];
+    for (int i = 0; i < t.size(); i++) {
+      firstValues[i] = t.get(i).getVal1();
+      secondValues[i] = t.get(i).getVal2();
+    }
+  }
+
+  /**
+   * Tuples given as parallel arrays, (firstValues[i], secondValues[i])
+   */
+  public BinaryConstraint(int fv, int sv, int[] fvals, int[] svals) {
+    firstVar = fv;
+    secondVar = sv;
+    firstValues = fvals;
+    secondValues = svals;
   }
 
   public String toString() {
     StringBuffer result = new StringBuffer();
     result.append("c(" + firstVar + ", " + secondVar + ")\n");
-    for (BinaryTuple bt : tuples)
-      result.append(bt + "\n");
+    for (int i = 0; i < firstValues.length; i++)
+      result.append("<" + firstValues[i] + ", " + secondValues[i] + ">\n");
     return result.toString();
   }
 
@@ -27,7 +44,27 @@ public final class BinaryConstraint {
     return secondVar;
   }
 
+  /**
+   * Tuples as objects, built on first use
+   */
   public ArrayList<BinaryTuple> getTuples() {
+    if (tuples == null) {
+      tuples = new ArrayList<BinaryTuple>(firstValues.length);
+      for (int i = 0; i < firstValues.length; i++)
+        tuples.add(new BinaryTuple(firstValues[i], secondValues[i]));
+    }
     return tuples;
   }
+
+  public int[] getFirstValues() {
+    return firstValues;
+  }
+
+  public int[] getSecondValues() {
+    return secondValues;
+  }
+
+  public int getNoTuples() {
+    return firstValues.length;
+  }
 }
@@ -18,6 +18,14 @@ public final class BinaryTuple {
   }
 
   // Additional
+  public int getVal1() {
+    return val1;
+  }
+
+  public int getVal2() {
+    return val2;
+  }
+
   public String toStringByComma() {
     return val1 + "," + val2;
   }
@@ -0,0 +1,165 @@
+import java.util.*;
+
+/**
+ * Conflict sets for conflict-directed backjumping.
+ * The set of a variable holds the decision levels that explain the values
+ * removed from its domain, as a bitset over decision indices. Sets follow the
+ * search levels: the first change to a set in a level saves the old words, and
+ * backtrack restores them, so undoing is as exact as the trail.
+ */
+public class ConflictSets {
+
+    private final int words;
+    private final long[][] sets;
+
+    // Saved (var, words) records, the level epoch each set was last saved in
+    private int[] savedVars = new int[64];
+    private long[] savedWords;
+    private int savedSize = 0;
+    private final int[] stamp;
+    private int[] checkpoints = new int[16];
+    private int[] levelEpoch = new int[17];
+    private int level = 0;
+    private int epochs = 0;
+
+    /**
+     * Constructor for the given number of variables, which bounds the decision depth
+     */
+    public ConflictSets(int noVariables) {
+        this.words = Domain.wordCount(0, noVariables - 1);
+        this.sets = new long[noVariables][words];
+        this.savedWords = new long[64 * words];
+        this.stamp = new int[noVariables];
+        Arrays.fill(stamp, -1);
+    }
+
+    /**
+     * Empty bitset with room for every decision level
+     */
+    public long[] newSet() {
+        return new long[words];
+    }
+
+    /**
+     * Open a level, later changes are undone by backtrack
+     */
+    public void newLevel() {
+        if (level == checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, level * 2);
+            levelEpoch = Arrays.copyOf(levelEpoch, level * 2 + 1);
+        }
+        checkpoints[level++] = savedSize;
+        levelEpoch[level] = ++epochs;
+    }
+
+    /**
+     * Restore the sets changed since the most recent level was opened
+     */
+    public void backtrack() {
+        int checkpoint = checkpoints[--level];
+        while (savedSize > checkpoint) {
+            savedSize--;
+            int var = savedVars[savedSize];
+            System.arraycopy(savedWords, savedSize * words, sets[var], 0, words);
+            stamp[var] = -1;
+        }
+    }
+
+    /**
+     * Replace the set of var by the single decision level
+     */
+    public void setLevel(int var, int decision) {
+        save(var);
+        Arrays.fill(sets[var], 0);
+        sets[var][decision >>> 6] |= 1L << decision;
+    }
+
+    /**
+     * Add every level of the bits to the set of var
+     */
+    public void add(int var, long[] bits) {
+        long[] set = sets[var];
+        for (int k = 0; k < words; k++) {
+            if ((bits[k] & ~set[k]) != 0) {
+                save(var);
+                for (; k < words; k++) {
+                    set[k] |= bits[k];
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Add the set of other to the set of var
+     */
+    public void addSet(int var, int other) {
+        add(var, sets[other]);
+    }
+
+    /**
+     * Add the set of var to the bits
+     */
+    public void collect(int var, long[] bits) {
+        long[] set = sets[var];
+        for (int k = 0; k < words; k++) {
+            bits[k] |= set[k];
+        }
+    }
+
+    private void save(int var) {
+        if (level == 0 || stamp[var] == levelEpoch[level]) {
+            // Root changes are never undone, and var is already saved in this level
+            return;
+        }
+        stamp[var] = levelEpoch[level];
+        if (savedSize == savedVars.length) {
+            savedVars = Arrays.copyOf(savedVars, savedSize * 2);
+            savedWords = Arrays.copyOf(savedWords, savedSize * 2 * words);
+        }
+        savedVars[savedSize] = var;
+        System.arraycopy(sets[var], 0, savedWords, savedSize * words, words);
+        savedSize++;
+    }
+
+    /**
+     * Bitset helpers
+     */
+
+    public static void clear(long[] bits) {
+        Arrays.fill(bits, 0);
+    }
+
+    /**
+     * Set the levels 0 to n - 1
+     */
+    public static void fill(long[] bits, int n) {
+        Arrays.fill(bits, 0);
+        for (int k = 0; k < (n >>> 6); k++) {
+            bits[k] = -1L;
+        }
+        if ((n & 63) != 0) {
+            bits[n >>> 6] = (1L << n) - 1;
+        }
+    }
+
+    /**
+     * Deepest level in the bits, or -1 if there is none
+     */
+    public static int highest(long[] bits) {
+        for (int k = bits.length - 1; k >= 0; k--) {
+            if (bits[k] != 0) {
+                return (k << 6) + 63 - Long.numberOfLeadingZeros(bits[k]);
+            }
+        }
+        return -1;
+    }
+
+    public static boolean contains(long[] bits, int decision) {
+        return (bits[decision >>> 6] & (1L << decision)) != 0;
+    }
+
+    public static void remove(long[] bits, int decision) {
+        bits[decision >>> 6] &= ~(1L << decision);
+    }
+}
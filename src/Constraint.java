@@ -1,38 +1,31 @@
-import java.util.*;
-import java.util.stream.Collectors;
-
 public class Constraint {
 
-    private HashMap<Variable, int[]> firstMap;
-    private HashMap<Variable, int[]> secondMap;
+    private final int firstVar;
+    private final int secondVar;
+    private final Relation relation;
 
     /**
      * Constructers
      */
-    public Constraint(HashMap<Variable, int[]> firstMap, HashMap<Variable, int[]> secondMap) {
-        this.firstMap = new HashMap<>();
-        this.firstMap = firstMap;
-        this.secondMap = new HashMap<>();
-        this.secondMap = secondMap;
+    public Constraint(int firstVar, int secondVar, Relation relation) {
+        this.firstVar = firstVar;
+        this.secondVar = secondVar;
+        this.relation = relation;
     }
 
     /**
      * Getters
      */
 
-    public Map<Variable, int[]> getFirstMap() {
-        return firstMap;
-    }
-
-    public Map<Variable, int[]> getSecondMap() {
-        return secondMap;
+    public int getFirstVar() {
+        return firstVar;
     }
 
-    public Variable getFirstVar() {
-        return firstMap.keySet().stream().collect(Collectors.toList()).get(0);
+    public int getSecondVar() {
+        return secondVar;
     }
 
-    public Variable getSecondVar() {
-        return secondMap.keySet().stream().collect(Collectors.toList()).get(0);
+    public Relation getRelation() {
+        return relation;
     }
 }
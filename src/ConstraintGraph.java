@@ -0,0 +1,125 @@
+import java.util.*;
+
+/**
+ * Constraint network compiled once per problem.
+ * The arcs of every variable are stored in CSR form: the entries of
+ * variable v are the slots from start[v] (inclusive) to start[v + 1] (exclusive).
+ */
+public class ConstraintGraph {
+
+    private final int noVariables;
+    private final Constraint[] constraints;
+    private final Arc[] arcs;
+
+    // Arcs whose firstVar is v, i.e. the arcs revising v
+    private final int[] arcsFromStart;
+    private final Arc[] arcsFrom;
+
+    // Arcs whose secondVar is v, i.e. the arcs to revise when v changes
+    private final int[] arcsToStart;
+    private final Arc[] arcsTo;
+
+    // Scopes of the allDifferent cliques in the disequalities, found on first use
+    private List<int[]> allDifferents = null;
+
+    /**
+     * Constructor
+     */
+    public ConstraintGraph(int noVariables, List<Constraint> constraintList) {
+        this.noVariables = noVariables;
+        this.constraints = constraintList.toArray(new Constraint[0]);
+        this.arcs = new Arc[constraints.length * 2];
+
+        int[] degree = new int[noVariables + 1];
+        for (int c = 0; c < constraints.length; c++) {
+            Constraint con = constraints[c];
+            arcs[2 * c] = new Arc(2 * c, con.getFirstVar(), con.getSecondVar(), con);
+            arcs[2 * c + 1] = new Arc(2 * c + 1, con.getSecondVar(), con.getFirstVar(), con);
+            degree[con.getFirstVar()]++;
+            degree[con.getSecondVar()]++;
+        }
+
+        // Both arc lists hold exactly one arc per incident constraint
+        this.arcsFromStart = prefixSums(degree);
+        this.arcsToStart = arcsFromStart;
+        this.arcsFrom = new Arc[arcs.length];
+        this.arcsTo = new Arc[arcs.length];
+        int[] fromFill = Arrays.copyOf(arcsFromStart, noVariables);
+        int[] toFill = Arrays.copyOf(arcsToStart, noVariables);
+        for (Arc arc : arcs) {
+            arcsFrom[fromFill[arc.getFirstVar()]++] = arc;
+            arcsTo[toFill[arc.getSecondVar()]++] = arc;
+        }
+    }
+
+    /**
+     * Exclusive prefix sums of counts, with the total in the last slot
+     */
+    private static int[] prefixSums(int[] counts) {
+        int[] start = new int[counts.length];
+        int sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            start[i] = sum;
+            sum += counts[i];
+        }
+        return start;
+    }
+
+    /**
+     * Getters
+     */
+
+    public int getNoVariables() {
+        return noVariables;
+    }
+
+    public int getNoConstraints() {
+        return constraints.length;
+    }
+
+    public Constraint getConstraint(int c) {
+        return constraints[c];
+    }
+
+    public int getNoArcs() {
+        return arcs.length;
+    }
+
+    public Arc getArc(int id) {
+        return arcs[id];
+    }
+
+    public int getArcsFromStart(int var) {
+        return arcsFromStart[var];
+    }
+
+    public int getArcsFromEnd(int var) {
+        return arcsFromStart[var + 1];
+    }
+
+    public Arc getArcFrom(int k) {
+        return arcsFrom[k];
+    }
+
+    public int getArcsToStart(int var) {
+        return arcsToStart[var];
+    }
+
+    public int getArcsToEnd(int var) {
+        return arcsToStart[var + 1];
+    }
+
+    public Arc getArcTo(int k) {
+        return arcsTo[k];
+    }
+
+    /**
+     * allDifferent scopes of at least 3 variables implied by the != constraints
+     */
+    public synchronized List<int[]> getAllDifferents() {
+        if (allDifferents == null) {
+            allDifferents = Collections.unmodifiableList(AllDifferentDetector.findCliques(this, 3));
+        }
+        return allDifferents;
+    }
+}
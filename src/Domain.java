@@ -0,0 +1,214 @@
+import java.util.*;
+
+/**
+ * Domain of a variable stored as a bitset over [lb, ub].
+ * Bit (v - lb) is set when v is still in the domain.
+ */
+public class Domain {
+
+    /**
+     * Returned by first/next/last when there is no such value
+     */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private final int lb;
+    private final int ub;
+    private final long[] words;
+    private int size;
+
+    /**
+     * Constructers
+     */
+
+    public Domain(int lb, int ub) {
+        this.lb = lb;
+        this.ub = ub;
+        this.words = new long[wordCount(lb, ub)];
+        this.size = Math.max(0, ub - lb + 1);
+        // Set the bits of [lb, ub] directly, the last word only up to ub
+        for (int k = 0; k < (size >>> 6); k++) {
+            words[k] = -1L;
+        }
+        if ((size & 63) != 0) {
+            words[size >>> 6] = (1L << size) - 1;
+        }
+    }
+
+    public Domain(Domain other) {
+        this.lb = other.lb;
+        this.ub = other.ub;
+        this.words = other.words.clone();
+        this.size = other.size;
+    }
+
+    /**
+     * Number of 64-bit words needed to hold [lb, ub]
+     */
+    public static int wordCount(int lb, int ub) {
+        return ub < lb ? 0 : ((ub - lb) >>> 6) + 1;
+    }
+
+    /**
+     * Getters
+     */
+
+    public int getLB() {
+        return lb;
+    }
+
+    public int getUB() {
+        return ub;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Check if the domain includes the value
+     */
+    public boolean contains(int v) {
+        if (v < lb || v > ub) {
+            return false;
+        }
+        int i = v - lb;
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Number of values of the domain that are also in the aligned bits
+     */
+    public int countIntersection(long[] bits) {
+        int count = 0;
+        for (int k = 0; k < words.length; k++) {
+            count += Long.bitCount(words[k] & bits[k]);
+        }
+        return count;
+    }
+
+    /**
+     * Smallest value of the domain that is also in the aligned bits, or NONE
+     */
+    public int firstIntersection(long[] bits) {
+        for (int k = 0; k < words.length; k++) {
+            long w = words[k] & bits[k];
+            if (w != 0) {
+                return lb + (k << 6) + Long.numberOfTrailingZeros(w);
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Number of values of the domain smaller than or equal to v, which must be in [lb, ub]
+     */
+    public int countUpTo(int v) {
+        int i = v - lb;
+        int count = 0;
+        for (int k = 0; k < (i >>> 6); k++) {
+            count += Long.bitCount(words[k]);
+        }
+        return count + Long.bitCount(words[i >>> 6] & (-1L >>> (63 - (i & 63))));
+    }
+
+    /**
+     * Remove a value, returns false if it was not in the domain
+     */
+    public boolean remove(int v) {
+        if (v < lb || v > ub) {
+            return false;
+        }
+        int i = v - lb;
+        long bit = 1L << i;
+        long w = words[i >>> 6];
+        if ((w & bit) == 0) {
+            return false;
+        }
+        words[i >>> 6] = w & ~bit;
+        size--;
+        return true;
+    }
+
+    /**
+     * Put a value back, returns false if it was already in the domain
+     */
+    public boolean restore(int v) {
+        if (v < lb || v > ub) {
+            return false;
+        }
+        int i = v - lb;
+        long bit = 1L << i;
+        long w = words[i >>> 6];
+        if ((w & bit) != 0) {
+            return false;
+        }
+        words[i >>> 6] = w | bit;
+        size++;
+        return true;
+    }
+
+    /**
+     * Smallest value in the domain or NONE
+     */
+    public int first() {
+        for (int k = 0; k < words.length; k++) {
+            if (words[k] != 0) {
+                return lb + (k << 6) + Long.numberOfTrailingZeros(words[k]);
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Smallest value in the domain greater than v or NONE
+     */
+    public int next(int v) {
+        int i = v < lb ? 0 : v - lb + 1;
+        if (v >= ub) {
+            return NONE;
+        }
+        int k = i >>> 6;
+        long w = words[k] & (-1L << i);
+        while (true) {
+            if (w != 0) {
+                return lb + (k << 6) + Long.numberOfTrailingZeros(w);
+            }
+            if (++k == words.length) {
+                return NONE;
+            }
+            w = words[k];
+        }
+    }
+
+    /**
+     * Largest value in the domain or NONE
+     */
+    public int last() {
+        for (int k = words.length - 1; k >= 0; k--) {
+            if (words[k] != 0) {
+                return lb + (k << 6) + 63 - Long.numberOfLeadingZeros(words[k]);
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Values currently in the domain in ascending order
+     */
+    public int[] toArray() {
+        int[] values = new int[size];
+        int n = 0;
+        for (int v = first(); v != NONE; v = next(v)) {
+            values[n++] = v;
+        }
+        return values;
+    }
+
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
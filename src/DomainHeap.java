@@ -0,0 +1,146 @@
+import java.util.*;
+
+/**
+ * Indexed binary min-heap of the unassigned variables ordered by domain size,
+ * ties broken by the smaller rank; with ranks equal to the ids this matches a
+ * scan of the variable list.
+ * It listens to the trail, so every pruning and every restore moves the
+ * variable in O(log n); assigned variables are taken out by the solver.
+ */
+public class DomainHeap implements Trail.Listener {
+
+    private final Variable[] vars;
+    private final int[] rank;
+    private final int[] heap;
+    private final int[] position;
+    private int size = 0;
+
+    /**
+     * Constructor, the heap starts empty. The ranks are owned by the caller, who
+     * calls rebuild after changing them
+     */
+    public DomainHeap(List<Variable> varList, int[] rank) {
+        this.vars = varList.toArray(new Variable[0]);
+        this.rank = rank;
+        this.heap = new int[varList.size()];
+        this.position = new int[varList.size()];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * Getters
+     */
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int var) {
+        return position[var] >= 0;
+    }
+
+    /**
+     * Variable with the smallest domain, the heap must not be empty
+     */
+    public int peek() {
+        return heap[0];
+    }
+
+    public void insert(int var) {
+        if (position[var] >= 0) {
+            return;
+        }
+        heap[size] = var;
+        position[var] = size;
+        siftUp(size++);
+    }
+
+    public void remove(int var) {
+        int i = position[var];
+        if (i < 0) {
+            return;
+        }
+        position[var] = -1;
+        int last = heap[--size];
+        if (i < size) {
+            heap[i] = last;
+            position[last] = i;
+            siftUp(i);
+            siftDown(position[last]);
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Restore the heap order after the ranks changed
+     */
+    public void rebuild() {
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Move var after its domain size changed, if it is in the heap
+     */
+    @Override
+    public void domainChanged(int var) {
+        int i = position[var];
+        if (i >= 0) {
+            siftUp(i);
+            siftDown(position[var]);
+        }
+    }
+
+    private boolean less(int a, int b) {
+        int sa = vars[a].getDomainSize();
+        int sb = vars[b].getDomainSize();
+        return sa < sb || (sa == sb && rank[a] < rank[b]);
+    }
+
+    private void siftUp(int i) {
+        int var = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(var, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = var;
+        position[var] = i;
+    }
+
+    private void siftDown(int i) {
+        int var = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && less(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!less(heap[child], var)) {
+                break;
+            }
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = var;
+        position[var] = i;
+    }
+}
@@ -0,0 +1,251 @@
+import java.util.*;
+
+/**
+ * Bounded store of nogoods: sets of assignments var = val which cannot all hold.
+ * Each nogood watches two of its literals that are not yet true, a literal being
+ * true once the domain of its variable is reduced to its value. When a watched
+ * literal becomes true another one is looked for, and if every other literal is
+ * true the value of the last one is pruned. Watches need no undoing on backtrack.
+ * The store holds at most capacity literals, the least active half of the
+ * nogoods is evicted when it is full. Activity grows each time a nogood prunes
+ * or fails and decays as new nogoods are recorded, so old unused ones go first.
+ */
+public class NogoodStore {
+
+    private static final double DECAY = 0.95;
+
+    private final ArrayList<Variable> varList;
+    private final int capacity;
+
+    // Literals as (var, val) pairs, the watched ones first
+    private int[][] nogoods = new int[64][];
+    private double[] activity = new double[64];
+    private int size = 0;
+    private int literals = 0;
+    private double increment = 1;
+
+    // Nogoods watching a literal of each variable
+    private final int[][] watches;
+    private final int[] watchCount;
+
+    // Explanations of the prunings for backjumping, null without it
+    private ConflictSets conflicts = null;
+    private long[] explanation = null;
+    private int failed = -1;
+
+    private long recorded = 0;
+    private long prunings = 0;
+    private long evicted = 0;
+
+    /**
+     * Constructor over the variables of one solver, holding at most capacity literals
+     */
+    public NogoodStore(ArrayList<Variable> varList, int capacity) {
+        this.varList = varList;
+        this.capacity = capacity;
+        this.watches = new int[varList.size()][4];
+        this.watchCount = new int[varList.size()];
+    }
+
+    /**
+     * Setters
+     */
+
+    public void setConflictSets(ConflictSets conflicts) {
+        this.conflicts = conflicts;
+        this.explanation = conflicts.newSet();
+    }
+
+    /**
+     * Getters
+     */
+
+    public int size() {
+        return size;
+    }
+
+    public long getRecorded() {
+        return recorded;
+    }
+
+    public long getPrunings() {
+        return prunings;
+    }
+
+    public long getEvicted() {
+        return evicted;
+    }
+
+    /**
+     * Record a nogood of at least two literals given as (var, val) pairs. The first two
+     * are watched and must not be true, or the first one must be false
+     */
+    public void add(int[] lits) {
+        int length = lits.length / 2;
+        if (length > capacity / 2) {
+            return;
+        }
+        if (literals + length > capacity) {
+            reduce();
+        }
+        if (size == nogoods.length) {
+            nogoods = Arrays.copyOf(nogoods, size * 2);
+            activity = Arrays.copyOf(activity, size * 2);
+        }
+        increment /= DECAY;
+        if (increment > 1e100) {
+            rescale();
+        }
+        nogoods[size] = lits;
+        activity[size] = increment;
+        watch(lits[0], size);
+        watch(lits[2], size);
+        size++;
+        literals += length;
+        recorded++;
+    }
+
+    /**
+     * Visit the nogoods watching var, whose domain has been reduced to one value.
+     * Pruned variables are queued unless queue is null. Returns false if a nogood
+     * has all its literals true
+     */
+    public boolean propagate(int var, Trail trail, PropagationQueue queue) {
+        int val = varList.get(var).getDomain().first();
+        int[] list = watches[var];
+        int n = watchCount[var];
+        int kept = 0;
+        boolean consistent = true;
+
+        for (int i = 0; i < n; i++) {
+            int c = list[i];
+            int[] lits = nogoods[c];
+            if (!consistent) {
+                list[kept++] = c;
+                continue;
+            }
+            // Keep the literal of var second
+            if (lits[0] == var) {
+                swap(lits, 0, 1);
+            }
+            if (lits[3] != val) {
+                // The literal is false, the nogood holds
+                list[kept++] = c;
+                continue;
+            }
+
+            // Move the watch to a literal which is not true
+            int k = 2;
+            while (k < lits.length / 2 && isTrue(lits[2 * k], lits[2 * k + 1])) {
+                k++;
+            }
+            if (k < lits.length / 2) {
+                swap(lits, 1, k);
+                watch(lits[2], c);
+                continue;
+            }
+            list[kept++] = c;
+
+            // Every literal but the first is true
+            Variable other = varList.get(lits[0]);
+            Domain domain = other.getDomain();
+            if (!domain.contains(lits[1])) {
+                continue;
+            }
+            activity[c] += increment;
+            if (domain.size() == 1) {
+                failed = c;
+                consistent = false;
+                continue;
+            }
+            other.prune(lits[1], trail);
+            prunings++;
+            if (conflicts != null) {
+                ConflictSets.clear(explanation);
+                for (int j = 1; j < lits.length / 2; j++) {
+                    conflicts.collect(lits[2 * j], explanation);
+                }
+                conflicts.add(lits[0], explanation);
+            }
+            if (queue != null) {
+                queue.add(lits[0]);
+            }
+        }
+        watchCount[var] = kept;
+        return consistent;
+    }
+
+    /**
+     * Add the levels explaining the nogood which failed last to the bits
+     */
+    public void explainFailure(long[] bits) {
+        int[] lits = nogoods[failed];
+        for (int j = 0; j < lits.length / 2; j++) {
+            conflicts.collect(lits[2 * j], bits);
+        }
+    }
+
+    private boolean isTrue(int var, int val) {
+        Domain domain = varList.get(var).getDomain();
+        return domain.size() == 1 && domain.contains(val);
+    }
+
+    private static void swap(int[] lits, int i, int j) {
+        int var = lits[2 * i];
+        int val = lits[2 * i + 1];
+        lits[2 * i] = lits[2 * j];
+        lits[2 * i + 1] = lits[2 * j + 1];
+        lits[2 * j] = var;
+        lits[2 * j + 1] = val;
+    }
+
+    private void watch(int var, int c) {
+        if (watchCount[var] == watches[var].length) {
+            watches[var] = Arrays.copyOf(watches[var], watchCount[var] * 2);
+        }
+        watches[var][watchCount[var]++] = c;
+    }
+
+    /**
+     * Keep the most active nogoods holding at most half the capacity and rebuild the watches
+     */
+    private void reduce() {
+        Integer[] order = new Integer[size];
+        for (int c = 0; c < size; c++) {
+            order[c] = c;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(activity[b], activity[a]));
+
+        int[][] keptNogoods = new int[nogoods.length][];
+        double[] keptActivity = new double[activity.length];
+        int kept = 0;
+        literals = 0;
+        for (int c : order) {
+            int length = nogoods[c].length / 2;
+            if (literals + length > capacity / 2) {
+                continue;
+            }
+            keptNogoods[kept] = nogoods[c];
+            keptActivity[kept] = activity[c];
+            kept++;
+            literals += length;
+        }
+        evicted += size - kept;
+        nogoods = keptNogoods;
+        activity = keptActivity;
+        size = kept;
+
+        Arrays.fill(watchCount, 0);
+        for (int c = 0; c < size; c++) {
+            watch(nogoods[c][0], c);
+            watch(nogoods[c][2], c);
+        }
+    }
+
+    private void rescale() {
+        for (int c = 0; c < size; c++) {
+            activity[c] *= 1e-100;
+        }
+        increment *= 1e-100;
+    }
+}
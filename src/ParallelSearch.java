@@ -0,0 +1,286 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Work-stealing parallel 2-way branching search.
+ * Each task runs a private Solver on its own copy of the domains. While the pool
+ * is short of work, a task hands the right branch (var != val) of its next left
+ * decision to a forked task, which idle workers can steal. Solvers share the
+ * compiled ConstraintGraph read-only.
+ */
+public class ParallelSearch {
+
+    // Split while fewer than this many forked tasks are waiting in the worker's queue
+    private static final int SURPLUS_TASKS = 2;
+
+    private final BinaryCSP csp;
+    private final ConstraintGraph graph;
+    private final String algorithm;
+    private final String varOrder;
+    private final String valOrder;
+    private final boolean allSolutions;
+    private final int threads;
+
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+    private final AtomicLong solutionCount = new AtomicLong();
+    private final AtomicLong backtracks = new AtomicLong();
+    private final AtomicReference<int[]> firstSolution = new AtomicReference<int[]>();
+    private final Set<Solver> running = ConcurrentHashMap.newKeySet();
+    private SolutionSink sink = null;
+    private long maxSolutions = 0;
+    private boolean allDifferent = false;
+    private long seed = 0;
+    private SolverResult result = null;
+
+    // Statistics per worker, indexed by ForkJoinWorkerThread.getPoolIndex()
+    private AtomicLongArray workerNodes;
+    private AtomicLongArray workerRevisions;
+    private AtomicLongArray workerTasks;
+    private AtomicLongArray workerSteals;
+
+    /**
+     * Constructor
+     */
+    public ParallelSearch(BinaryCSP csp, String algorithm, String varOrder, String valOrder,
+            boolean allSolutions, int threads) {
+        this.csp = csp;
+        this.graph = Solver.compile(csp);
+        this.algorithm = algorithm;
+        this.varOrder = varOrder;
+        this.valOrder = valOrder;
+        this.allSolutions = allSolutions;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Search the whole tree, returns true if a solution has been found
+     */
+    public boolean run() {
+        long start = System.nanoTime();
+        workerNodes = new AtomicLongArray(threads);
+        workerRevisions = new AtomicLongArray(threads);
+        workerTasks = new AtomicLongArray(threads);
+        workerSteals = new AtomicLongArray(threads);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new SearchTask(null, null, -1, 0, -1));
+        } finally {
+            pool.shutdown();
+        }
+        int[] solution = firstSolution.get();
+        SolverResult.Status status = solution != null ? SolverResult.Status.SAT : SolverResult.Status.UNSAT;
+        result = new SolverResult(status, null, solution, getSolutionCount(), getSearchNodes(), getArcRevisions(),
+                backtracks.get(), System.nanoTime() - start);
+        return solution != null;
+    }
+
+    /**
+     * Setters
+     */
+
+    public void setSolutionSink(SolutionSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Stop enumerating after n solutions in total, 0 for no limit
+     */
+    public void setMaxSolutions(long n) {
+        this.maxSolutions = n;
+    }
+
+    public void setAllDifferent(boolean allDifferent) {
+        this.allDifferent = allDifferent;
+    }
+
+    /**
+     * Seed of the random value ordering, shared by the solvers of all tasks
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Getters
+     */
+
+    public long getSolutionCount() {
+        // Workers racing past the limit are counted but not published
+        long limit = allSolutions ? maxSolutions : 1;
+        return limit > 0 ? Math.min(solutionCount.get(), limit) : solutionCount.get();
+    }
+
+    public int[] getFirstSolution() {
+        return firstSolution.get();
+    }
+
+    public long getSearchNodes() {
+        return sum(workerNodes);
+    }
+
+    public long getArcRevisions() {
+        return sum(workerRevisions);
+    }
+
+    /**
+     * Result with the totals over all workers, null before run returns
+     */
+    public SolverResult getResult() {
+        return result;
+    }
+
+    private static long sum(AtomicLongArray counts) {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Print the statistics of every worker
+     */
+    public void printStatistics() {
+        System.out.println("#### Worker statistics ####");
+        for (int i = 0; i < threads; i++) {
+            System.out.println("worker " + i + ": searchNodes=" + workerNodes.get(i) + " arcRevisions="
+                    + workerRevisions.get(i) + " tasks=" + workerTasks.get(i) + " steals=" + workerSteals.get(i));
+        }
+        if (allSolutions) {
+            System.out.println("solutions=" + getSolutionCount());
+        }
+    }
+
+    /**
+     * Output in the same format as Solver.printSolutions, with totals over all workers
+     */
+    public void printSolutions() {
+        System.out.println("#### Output solution ####");
+        System.out.println(getSearchNodes());
+        System.out.println(getArcRevisions());
+        int[] values = firstSolution.get();
+        for (int i = 0; i < csp.getNoVariables(); i++) {
+            System.out.println(values == null ? -1 : values[i]);
+        }
+    }
+
+    /**
+     * Cancel every running solver and prevent new tasks from searching
+     */
+    private void stop() {
+        if (stopped.compareAndSet(false, true)) {
+            for (Solver solver : running) {
+                solver.cancel();
+            }
+        }
+    }
+
+    /**
+     * Current worker index, or 0 when called outside the pool.
+     * Spare threads the pool adds while joining share the slots of the others
+     */
+    private int workerIndex() {
+        Thread t = Thread.currentThread();
+        return t instanceof ForkJoinWorkerThread ? ((ForkJoinWorkerThread) t).getPoolIndex() % threads : 0;
+    }
+
+    /**
+     * Subtree rooted at a copied state with var != val still to be applied.
+     * The root task has no state and runs the normal search from scratch
+     */
+    private class SearchTask extends RecursiveAction implements Solver.Splitter, SolutionSink {
+
+        // Tasks only live in one pool and are never serialized
+        private static final long serialVersionUID = 1L;
+
+        private final transient Domain[] domains;
+        private final int[] values;
+        private final int var;
+        private final int val;
+        private final int owner;
+        private final ArrayList<SearchTask> forked = new ArrayList<SearchTask>();
+
+        SearchTask(Domain[] domains, int[] values, int var, int val, int owner) {
+            this.domains = domains;
+            this.values = values;
+            this.var = var;
+            this.val = val;
+            this.owner = owner;
+        }
+
+        @Override
+        protected void compute() {
+            int worker = workerIndex();
+            workerTasks.incrementAndGet(worker);
+            if (owner >= 0 && owner != worker) {
+                workerSteals.incrementAndGet(worker);
+            }
+
+            if (!stopped.get()) {
+                Solver solver = new Solver(csp, graph, varOrder, valOrder);
+                solver.setAllSolutions(allSolutions);
+                solver.setSolutionSink(this);
+                solver.setSplitter(this);
+                solver.setAllDifferent(allDifferent);
+                solver.setSeed(seed);
+                running.add(solver);
+                if (stopped.get()) {
+                    solver.cancel();
+                }
+
+                if (domains == null) {
+                    solver.run(algorithm);
+                } else {
+                    solver.loadState(domains, values);
+                    solver.runRightBranch(algorithm, var, val);
+                }
+                running.remove(solver);
+
+                workerNodes.addAndGet(worker, solver.getSearchNodes());
+                workerRevisions.addAndGet(worker, solver.getArcRevisions());
+                backtracks.addAndGet(solver.getBacktracks());
+            }
+
+            // Joining lets this worker run or steal other tasks meanwhile
+            for (int i = forked.size() - 1; i >= 0; i--) {
+                forked.get(i).join();
+            }
+        }
+
+        /**
+         * Hand the right branch over while the pool is short of work
+         */
+        @Override
+        public boolean split(Solver solver, Variable var, int val) {
+            if (stopped.get() || getSurplusQueuedTaskCount() >= SURPLUS_TASKS) {
+                return false;
+            }
+            SearchTask task = new SearchTask(solver.copyDomains(), solver.copyValues(), var.getId(), val,
+                    workerIndex());
+            forked.add(task);
+            task.fork();
+            return true;
+        }
+
+        /**
+         * Publish a solution of this task's solver, stopping everyone once the limit is reached
+         */
+        @Override
+        public boolean accept(int[] values) {
+            long limit = allSolutions ? maxSolutions : 1;
+            long n = solutionCount.incrementAndGet();
+            if (limit > 0 && n > limit) {
+                return false;
+            }
+            firstSolution.compareAndSet(null, values.clone());
+            boolean more = sink == null || sink.accept(values);
+            if (!more || n == limit) {
+                stop();
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs differently configured solvers on the same problem concurrently.
+ * The compiled ConstraintGraph is built once and shared read-only, each solver
+ * owns its variables, trail and queue. The first solver to finish decides the
+ * answer and the others are cancelled.
+ */
+public class Portfolio {
+
+    private final BinaryCSP csp;
+    private final ConstraintGraph graph;
+    private final ArrayList<Config> configs = new ArrayList<Config>();
+    private boolean allDifferent = false;
+
+    /**
+     * Constructor
+     */
+    public Portfolio(BinaryCSP csp) {
+        this.csp = csp;
+        this.graph = Solver.compile(csp);
+    }
+
+    /**
+     * Add a solver configuration
+     */
+    public void addConfig(String algorithm, String varOrder, String valOrder) {
+        addConfig(algorithm, varOrder, valOrder, 0, false);
+    }
+
+    /**
+     * Add a solver configuration with the seed of its random choices and whether it
+     * breaks variable ordering ties randomly
+     */
+    public void addConfig(String algorithm, String varOrder, String valOrder, long seed, boolean randomTies) {
+        configs.add(new Config(algorithm, varOrder, valOrder, seed, randomTies));
+    }
+
+    /**
+     * Propagate the detected allDifferent cliques in the MAC configurations
+     */
+    public void setAllDifferent(boolean allDifferent) {
+        this.allDifferent = allDifferent;
+    }
+
+    /**
+     * Add every algorithm, variable ordering and value ordering combination. The
+     * algorithms vary fastest so every one of them is in the first threads to start.
+     * The random value orderings also break ties randomly, each with its own seed
+     */
+    public void addDefaultConfigs() {
+        long seed = 0;
+        for (String valOrder : Solver.VAL_ORDERS) {
+            for (String varOrder : Solver.VAR_ORDERS) {
+                for (String algorithm : Solver.ALGORITHMS) {
+                    boolean random = valOrder.equals("random");
+                    addConfig(algorithm, varOrder, valOrder, random ? ++seed : 0, random);
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of solver configurations
+     */
+    public int getNoConfigs() {
+        return configs.size();
+    }
+
+    /**
+     * Solve with up to the given number of threads and return the first solver to finish,
+     * which either holds a solution or has proved there is none, or null if every solver
+     * failed with an exception
+     */
+    public Solver run(int threads) throws InterruptedException {
+
+        ArrayList<Solver> solvers = new ArrayList<Solver>();
+        for (Config config : configs) {
+            Solver solver = new Solver(csp, graph, config.varOrder, config.valOrder);
+            solver.setAllDifferent(allDifferent);
+            solver.setSeed(config.seed);
+            solver.setRandomTies(config.randomTies);
+            solvers.add(solver);
+        }
+
+        Solver winner = null;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, solvers.size())));
+        CompletionService<Solver> completion = new ExecutorCompletionService<Solver>(executor);
+        try {
+            for (int i = 0; i < solvers.size(); i++) {
+                Solver solver = solvers.get(i);
+                String algorithm = configs.get(i).algorithm;
+                completion.submit(() -> {
+                    solver.run(algorithm);
+                    return solver;
+                });
+            }
+
+            for (int i = 0; i < solvers.size(); i++) {
+                try {
+                    Solver finished = completion.take().get();
+                    if (!finished.isCancelled()) {
+                        winner = finished;
+                        return winner;
+                    }
+                } catch (ExecutionException e) {
+                    System.err.println(e.getCause());
+                }
+            }
+            return null;
+        } finally {
+            for (Solver solver : solvers) {
+                if (solver != winner) {
+                    solver.cancel();
+                }
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Algorithm, orderings and random choices of one solver
+     */
+    private static class Config {
+        final String algorithm;
+        final String varOrder;
+        final String valOrder;
+        final long seed;
+        final boolean randomTies;
+
+        Config(String algorithm, String varOrder, String valOrder, long seed, boolean randomTies) {
+            this.algorithm = algorithm;
+            this.varOrder = varOrder;
+            this.valOrder = valOrder;
+            this.seed = seed;
+            this.randomTies = randomTies;
+        }
+    }
+}
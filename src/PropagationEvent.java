@@ -0,0 +1,21 @@
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder event for one propagation call, from the change that
+ * triggered it to the fixpoint or the wipeout
+ */
+@Name("constraintsolver.Propagation")
+@Label("Propagation")
+@Category("Constraint Solver")
+@Description("Propagation of the changed variables until a fixpoint or a wipeout")
+public class PropagationEvent extends Event {
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Values Pruned")
+    int pruned;
+
+    @Label("Consistent")
+    boolean consistent;
+}
@@ -0,0 +1,61 @@
+/**
+ * FIFO queue of variable ids whose domains have changed.
+ * A presence flag per variable keeps each one in the queue at most once, so the
+ * ring buffer never needs more than one slot per variable and never grows.
+ */
+public class PropagationQueue {
+
+    private final int[] ring;
+    private final boolean[] inQueue;
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * Constructor
+     */
+    public PropagationQueue(int noVariables) {
+        this.ring = new int[noVariables];
+        this.inQueue = new boolean[noVariables];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int var) {
+        return inQueue[var];
+    }
+
+    /**
+     * Add var unless it is already waiting
+     */
+    public void add(int var) {
+        if (inQueue[var]) {
+            return;
+        }
+        inQueue[var] = true;
+        int tail = head + size;
+        ring[tail >= ring.length ? tail - ring.length : tail] = var;
+        size++;
+    }
+
+    /**
+     * Remove and return the oldest variable
+     */
+    public int poll() {
+        int var = ring[head];
+        head = head + 1 == ring.length ? 0 : head + 1;
+        size--;
+        inQueue[var] = false;
+        return var;
+    }
+
+    /**
+     * Empty the queue, e.g. after a domain wipeout
+     */
+    public void clear() {
+        while (size > 0) {
+            poll();
+        }
+    }
+}
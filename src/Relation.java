@@ -0,0 +1,104 @@
+import java.util.*;
+
+/**
+ * Allowed tuples of a binary constraint compiled into support bitsets.
+ * Row a of the forward table has bit (b - secondLB) set when (a, b) is allowed,
+ * so it lines up word by word with the Domain of the second variable; the
+ * backward table is the same relation seen from the second variable.
+ * Relations are immutable and identical ones are interned, so constraints
+ * with the same allowed tuples share one table.
+ */
+public class Relation {
+
+    private final int firstLB;
+    private final int firstUB;
+    private final int secondLB;
+    private final int secondUB;
+    private final long[][] forward;
+    private final long[][] backward;
+    private final int hash;
+
+    /**
+     * Constructers
+     * Tuples outside the bounds can never be used and are dropped
+     */
+    public Relation(int firstLB, int firstUB, int secondLB, int secondUB, int[] firstValues, int[] secondValues) {
+        this.firstLB = firstLB;
+        this.firstUB = firstUB;
+        this.secondLB = secondLB;
+        this.secondUB = secondUB;
+        this.forward = new long[Math.max(0, firstUB - firstLB + 1)][Domain.wordCount(secondLB, secondUB)];
+        this.backward = new long[Math.max(0, secondUB - secondLB + 1)][Domain.wordCount(firstLB, firstUB)];
+
+        for (int t = 0; t < firstValues.length; t++) {
+            int a = firstValues[t] - firstLB;
+            int b = secondValues[t] - secondLB;
+            if (a < 0 || a >= forward.length || b < 0 || b >= backward.length) {
+                continue;
+            }
+            forward[a][b >>> 6] |= 1L << b;
+            backward[b][a >>> 6] |= 1L << a;
+        }
+        this.hash = 31 * (31 * (31 * (31 * firstLB + firstUB) + secondLB) + secondUB) + Arrays.deepHashCode(forward);
+    }
+
+    /**
+     * The shared relation equal to this one, registering this one if it is the first
+     */
+    public Relation intern(Map<Relation, Relation> pool) {
+        Relation shared = pool.putIfAbsent(this, this);
+        return shared == null ? this : shared;
+    }
+
+    /**
+     * Relations are equal when they allow the same tuples over the same bounds
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Relation)) {
+            return false;
+        }
+        Relation r = (Relation) o;
+        return hash == r.hash && firstLB == r.firstLB && firstUB == r.firstUB && secondLB == r.secondLB
+                && secondUB == r.secondUB && Arrays.deepEquals(forward, r.forward);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Getters
+     */
+
+    public int getFirstLB() {
+        return firstLB;
+    }
+
+    public int getFirstUB() {
+        return firstUB;
+    }
+
+    public int getSecondLB() {
+        return secondLB;
+    }
+
+    public int getSecondUB() {
+        return secondUB;
+    }
+
+    /**
+     * Support rows of the first variable's values, indexed by a - firstLB
+     */
+    public long[][] getForwardRows() {
+        return forward;
+    }
+
+    /**
+     * Support rows of the second variable's values, indexed by b - secondLB
+     */
+    public long[][] getBackwardRows() {
+        return backward;
+    }
+}
@@ -0,0 +1,12 @@
+/**
+ * Receives solutions as the search finds them
+ */
+public interface SolutionSink {
+
+    /**
+     * Called once per solution with the value of every variable, indexed by id.
+     * The array is reused by the caller and must be copied to be kept.
+     * Returns false to stop the enumeration
+     */
+    boolean accept(int[] values);
+}
@@ -0,0 +1,57 @@
+import java.io.*;
+
+/**
+ * Streams solutions as text, one line of space separated values per solution.
+ * Output is buffered and accept is synchronized so parallel workers can share it
+ */
+public class SolutionWriter implements SolutionSink, Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder();
+    private final boolean closeOut;
+
+    /**
+     * Constructers
+     */
+
+    public SolutionWriter(OutputStream stream) {
+        // Standard output is flushed but never closed
+        this.out = new BufferedWriter(new OutputStreamWriter(stream), BUFFER_SIZE);
+        this.closeOut = stream != System.out;
+    }
+
+    public SolutionWriter(String fileName) throws IOException {
+        this.out = new BufferedWriter(new FileWriter(fileName), BUFFER_SIZE);
+        this.closeOut = true;
+    }
+
+    @Override
+    public synchronized boolean accept(int[] values) {
+        line.setLength(0);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(' ');
+            }
+            line.append(values[i]);
+        }
+        line.append('\n');
+        try {
+            out.append(line);
+        } catch (IOException e) {
+            System.err.println(e);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closeOut) {
+            out.close();
+        } else {
+            out.flush();
+        }
+    }
+}
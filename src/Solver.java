@@ -1,22 +1,110 @@
 import java.util.*;
-import java.util.stream.IntStream;
+import jdk.jfr.FlightRecorder;
 
 public class Solver {
 
-    private final ArrayList<Integer> solution = new ArrayList<Integer>();
-    private ArrayList<Variable> varList;
-    private ArrayList<Constraint> constraintList;
-    private final LinkedList<Variable> prunedList = new LinkedList<>();
-    private LinkedList<Integer> idSequences = new LinkedList<>();
-    private LinkedList<Arc> arcList = new LinkedList<>();
-    private int searchNodes = 0;
-    private int arcRevisions = 0;
-
-    public enum Branch {
-        LEFT, RIGHT
-    }
+    // Names accepted by run() and the constructor, shared by the command line
+    // validation and the benchmarks
+    public static final List<String> ALGORITHMS = List.of("fc", "mac", "mac-rm", "fc-cbj", "mac-cbj");
+    public static final List<String> VAR_ORDERS = List.of("asc", "sdf", "wdeg", "dom/wdeg", "dom/deg");
+    public static final List<String> VAL_ORDERS = List.of("asc", "desc", "lcv", "random");
 
-    Branch branch;
+    private ArrayList<Variable> varList;
+    private final ConstraintGraph graph;
+    private final Trail trail;
+    private final PropagationQueue queue;
+    private long searchNodes = 0;
+    private long arcRevisions = 0;
+    private boolean solved = false;
+    private volatile boolean cancelled = false;
+
+    // Budgets, 0 for no limit. Nodes and revisions are checked at every step of
+    // the search loop and the clock every 64 steps, so a budget may be overrun
+    // by the propagation in progress. The first budget spent, or a cancel,
+    // stops the search with an UNKNOWN result unless a solution was found
+    private long nodeLimit = 0;
+    private long revisionLimit = 0;
+    private long timeLimitNanos = 0;
+    private long deadline = 0;
+    private volatile String stopReason = null;
+    private SolverResult result = null;
+
+    // Instrumentation read live by SolverMonitor. Propagation is only timed once
+    // a monitor is attached. The JFR event classes are not even loaded, which
+    // would start JFR, until Flight Recorder is initialised by a recording
+    private long backtracks = 0;
+    private int maxDepth = 0;
+    private long propagationNanos = 0;
+    private boolean instrumented = false;
+
+    // Enumeration: keep searching after a solution, remembering the first one and
+    // streaming every solution to the sink
+    private boolean allSolutions = false;
+    private long maxSolutions = 0;
+    private long solutionCount = 0;
+    private int[] firstSolution = null;
+    private SolutionSink sink = null;
+    private int[] sinkValues = null;
+
+    // Optional hook handing right branches to other workers
+    private Splitter splitter = null;
+
+    // Left decisions on the current path, decision i opened trail level i + 1
+    private final int[] decisionVars;
+    private final int[] decisionVals;
+    private final boolean[] decisionShared;
+    private int depth = 0;
+
+    // Residual supports for mac-rm: the last supporting value found for each
+    // (arc, value of its firstVar), kept across backtracking
+    private int[] residues = null;
+    private int[] residueStart = null;
+
+    // Constraint weights for wdeg and dom/wdeg, starting at 1 and bumped each
+    // time revising an arc of the constraint wipes out a domain
+    private final int[] weights;
+
+    // Unassigned variables by domain size for sdf, kept up to date through the
+    // trail, and the number of assigned variables
+    private DomainHeap heap = null;
+    private int assignedCount = 0;
+
+    // Source of the random value ordering and tie-breaking
+    private Random random = new Random(0);
+
+    // Restarts: the search goes back to the root once the failures since the
+    // last restart reach the cutoff, keeping weights, residues and the
+    // refutations taken at the root. Ties in the variable ordering are broken
+    // by tieRank, the identity unless randomised again at every restart
+    private String restartPolicy = "none";
+    private long restartBase = 100;
+    private double restartFactor = 1.5;
+    private boolean randomTies = false;
+    private long restartCutoff = 0;
+    private long failures = 0;
+    private long restarts = 0;
+    private final int[] tieRank;
+
+    // allDifferent propagators over the != cliques, run by MAC once the binary
+    // arcs are consistent. Each variable lists the propagators it belongs to
+    private boolean allDifferent = false;
+    private AllDifferent[] allDifferents = null;
+    private int[][] varAllDifferents = null;
+    private PropagationQueue allDifferentQueue = null;
+
+    // Conflict-directed backjumping for fc-cbj and mac-cbj: the decision levels
+    // explaining the removals of each variable, the levels to blame for the last
+    // failure, and the levels jumped over without taking their right branches
+    private ConflictSets conflicts = null;
+    private long[] conflict = null;
+    private long[] explanation = null;
+    private long skippedLevels = 0;
+
+    // Nogood recording: each failed left branch is stored as the nogood of its
+    // decision and the decisions above it, or those in its conflict with
+    // backjumping. The store is kept across restarts
+    private int nogoodCapacity = 0;
+    private NogoodStore nogoods = null;
 
     // Parameters
     String varOrder;
@@ -26,136 +114,763 @@ public class Solver {
      * Constructor
      */
     public Solver(BinaryCSP csp, String varOrder, String valOrder) {
+        this(csp, compile(csp), varOrder, valOrder);
+    }
+
+    /**
+     * Constructor sharing an already compiled graph, which is never modified by the solver
+     */
+    public Solver(BinaryCSP csp, ConstraintGraph graph, String varOrder, String valOrder) {
         this.varOrder = varOrder;
         this.valOrder = valOrder;
         this.varList = generateVarList(csp.getDomainBounds());
-        this.constraintList = generateConstraintList(csp.getConstraints(), varList);
-        this.branch = Branch.LEFT;
+        this.graph = graph;
+        this.trail = new Trail(varList);
+        this.queue = new PropagationQueue(varList.size());
+        this.decisionVars = new int[varList.size()];
+        this.decisionVals = new int[varList.size()];
+        this.decisionShared = new boolean[varList.size()];
+        this.weights = new int[graph.getNoConstraints()];
+        Arrays.fill(weights, 1);
+        this.tieRank = new int[varList.size()];
+        for (int i = 0; i < tieRank.length; i++) {
+            tieRank[i] = i;
+        }
+        if (varOrder.equals("sdf")) {
+            this.heap = new DomainHeap(varList, tieRank);
+            for (Variable v : varList) {
+                heap.insert(v.getId());
+            }
+            trail.setListener(heap);
+        }
+    }
+
+    /**
+     * Decides whether the right branch var != val of a left decision about to be
+     * taken is explored elsewhere. It is called before var = val is applied, so
+     * the solver state is the one the right branch starts from
+     */
+    public interface Splitter {
+        boolean split(Solver solver, Variable var, int val);
     }
 
     /**
      * Run solver
      */
-    public void run(String algorithm) {
+    public SolverResult run(String algorithm) {
 
+        long start = System.nanoTime();
+        if (timeLimitNanos > 0) {
+            deadline = start + timeLimitNanos;
+        }
         switch (algorithm) {
             case "fc":
                 forwardChecking();
                 break;
+            case "fc-cbj":
+                initConflicts();
+                forwardChecking();
+                break;
             case "mac":
-                mac();
+                initAllDifferents();
+                // Establish arc consistency before the first decision
+                if (ac3(varList)) {
+                    mac();
+                }
+                break;
+            case "mac-rm":
+                initResidues();
+                initAllDifferents();
+                if (ac3(varList)) {
+                    mac();
+                }
                 break;
+            case "mac-cbj":
+                initConflicts();
+                initAllDifferents();
+                if (ac3(varList)) {
+                    mac();
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+
+        SolverResult.Status status = solved ? SolverResult.Status.SAT
+                : stopReason != null ? SolverResult.Status.UNKNOWN : SolverResult.Status.UNSAT;
+        result = new SolverResult(status, stopReason, firstSolution, solutionCount, searchNodes, arcRevisions,
+                backtracks, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Search the subtree where var != val below a state loaded with loadState
+     */
+    public void runRightBranch(String algorithm, int var, int val) {
+
+        boolean maintainArc = !algorithm.startsWith("fc");
+        if (algorithm.equals("mac-rm")) {
+            initResidues();
+        }
+        if (algorithm.endsWith("-cbj")) {
+            initConflicts();
+        }
+        if (maintainArc) {
+            initAllDifferents();
+        }
+        if (branchRight(varList.get(var), val, maintainArc)) {
+            search(maintainArc);
+        }
+    }
+
+    /**
+     * Copy the current domains so that another solver can continue from them
+     */
+    public Domain[] copyDomains() {
+        Domain[] domains = new Domain[varList.size()];
+        for (Variable v : varList) {
+            domains[v.getId()] = new Domain(v.getDomain());
+        }
+        return domains;
+    }
+
+    /**
+     * Copy the current values, Variable.UNASSIGNED for unassigned variables
+     */
+    public int[] copyValues() {
+        int[] values = new int[varList.size()];
+        for (Variable v : varList) {
+            values[v.getId()] = v.getValue();
+        }
+        return values;
+    }
+
+    /**
+     * Start a fresh solver from copied domains and values, which it takes ownership of
+     */
+    public void loadState(Domain[] domains, int[] values) {
+        assignedCount = 0;
+        if (heap != null) {
+            heap.clear();
+        }
+        for (Variable v : varList) {
+            v.setDomain(domains[v.getId()]);
+            v.setValue(values[v.getId()]);
+            if (v.isAssigned()) {
+                assignedCount++;
+            } else if (heap != null) {
+                heap.insert(v.getId());
+            }
+        }
+    }
+
+    /**
+     * Stop the search from another thread, run returns soon after without a solution.
+     * Safe to call from any thread and more than once
+     */
+    public void cancel() {
+        stop("cancelled");
+    }
+
+    /**
+     * Stop the search, keeping the first reason given
+     */
+    private synchronized void stop(String reason) {
+        if (stopReason == null) {
+            stopReason = reason;
         }
+        cancelled = true;
+    }
+
+    /**
+     * Stop once a budget is spent, returns false if the search has to stop
+     */
+    private boolean withinBudget(int steps) {
+        if (nodeLimit > 0 && searchNodes >= nodeLimit) {
+            stop("nodes");
+        } else if (revisionLimit > 0 && arcRevisions >= revisionLimit) {
+            stop("revisions");
+        } else if (deadline != 0 && (steps & 63) == 0 && System.nanoTime() - deadline >= 0) {
+            stop("time");
+        }
+        return !cancelled;
+    }
+
+    /**
+     * Setters
+     */
+
+    /**
+     * Budgets of search nodes, arc revisions and wall time in milliseconds, 0 for no limit
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    public void setRevisionLimit(long revisionLimit) {
+        this.revisionLimit = revisionLimit;
+    }
+
+    public void setTimeLimit(long millis) {
+        this.timeLimitNanos = millis * 1000000;
+    }
+
+    public void setAllSolutions(boolean allSolutions) {
+        this.allSolutions = allSolutions;
+    }
+
+    /**
+     * Stop enumerating after n solutions, 0 for no limit
+     */
+    public void setMaxSolutions(long n) {
+        this.maxSolutions = n;
+    }
+
+    public void setSolutionSink(SolutionSink sink) {
+        this.sink = sink;
+        this.sinkValues = new int[varList.size()];
+    }
+
+    public void setSplitter(Splitter splitter) {
+        this.splitter = splitter;
+    }
+
+    /**
+     * Seed of the random value ordering
+     */
+    public void setSeed(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Restart with cutoffs of base failures scaled by the policy: "luby" for the
+     * Luby sequence, "geometric" for factor^i, "none" to never restart.
+     * Ignored when enumerating solutions or splitting the tree. The search is only
+     * complete because the cutoffs grow without bound, so factor must exceed 1
+     */
+    public void setRestarts(String policy, long base, double factor) {
+        if (!(factor > 1)) {
+            throw new IllegalArgumentException("Restart factor must be greater than 1: " + factor);
+        }
+        this.restartPolicy = policy;
+        this.restartBase = Math.max(1, base);
+        this.restartFactor = factor;
+    }
+
+    /**
+     * Break ties in the variable ordering randomly, with a new draw at every restart
+     */
+    public void setRandomTies(boolean randomTies) {
+        this.randomTies = randomTies;
+    }
+
+    /**
+     * Time the propagation calls, for SolverMonitor
+     */
+    public void setInstrumented(boolean instrumented) {
+        this.instrumented = instrumented;
+    }
+
+    /**
+     * Propagate the allDifferent cliques found in the != constraints, MAC only
+     */
+    public void setAllDifferent(boolean allDifferent) {
+        this.allDifferent = allDifferent;
+    }
+
+    /**
+     * Record nogoods holding at most capacity literals, 0 to disable. Ignored when
+     * enumerating solutions or splitting the search
+     */
+    public void setNogoods(int capacity) {
+        this.nogoodCapacity = capacity;
+    }
+
+    /**
+     * Getters
+     */
+
+    public boolean isSolved() {
+        return solved;
+    }
+
+    public long getSolutionCount() {
+        return solutionCount;
+    }
+
+    /**
+     * Values of the first solution found, or null
+     */
+    public int[] getFirstSolution() {
+        return firstSolution;
+    }
+
+    public long getSearchNodes() {
+        return searchNodes;
+    }
+
+    public long getArcRevisions() {
+        return arcRevisions;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Result of the last run, null before it returns
+     */
+    public SolverResult getResult() {
+        return result;
+    }
+
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getRestarts() {
+        return restarts;
+    }
+
+    /**
+     * Decision levels jumped over by fc-cbj and mac-cbj. Each is a right branch not
+     * taken, which may have failed at once, so this is not a measure of work saved
+     */
+    public long getSkippedLevels() {
+        return skippedLevels;
+    }
+
+    /**
+     * Nogood store, null unless recording
+     */
+    public NogoodStore getNogoods() {
+        return nogoods;
+    }
+
+    /**
+     * Current weight of constraint c, bumped on every wipeout it causes
+     */
+    public int getWeight(int c) {
+        return weights[c];
+    }
+
+    /**
+     * Time spent propagating, only measured when instrumented
+     */
+    public long getPropagationNanos() {
+        return propagationNanos;
+    }
+
+    /**
+     * Compile the constraints of csp into a graph that solvers can share
+     */
+    public static ConstraintGraph compile(BinaryCSP csp) {
+        return new ConstraintGraph(csp.getNoVariables(),
+                generateConstraintList(csp.getConstraints(), csp.getDomainBounds()));
     }
 
     /**
      * Generate variables from domainBounds
      */
-    public ArrayList<Variable> generateVarList(int[][] domainBounds) {
+    public static ArrayList<Variable> generateVarList(int[][] domainBounds) {
 
         ArrayList<Variable> varList = new ArrayList<Variable>();
         for (int i = 0; i < domainBounds.length; i++) {
-            int[] d = IntStream.range(0, domainBounds[i][1] + 1).toArray();
-            Variable v = new Variable(i, d);
+            Variable v = new Variable(i, new Domain(domainBounds[i][0], domainBounds[i][1]));
             varList.add(v);
         }
         return varList;
     }
 
     /**
-     * Generate constraintList from constraints and variables
+     * Generate constraintList from constraints, compiling each relation against the domain bounds
      */
-    public ArrayList<Constraint> generateConstraintList(ArrayList<BinaryConstraint> constraints,
-            ArrayList<Variable> variables) {
+    public static ArrayList<Constraint> generateConstraintList(ArrayList<BinaryConstraint> constraints,
+            int[][] domainBounds) {
 
         ArrayList<Constraint> cl = new ArrayList<Constraint>();
+        HashMap<Relation, Relation> relations = new HashMap<Relation, Relation>();
 
         for (BinaryConstraint bc : constraints) {
-            Variable var1 = new Variable();
-            Variable var2 = new Variable();
+            int[] valuesInVar1 = bc.getFirstValues();
+            int[] valuesInVar2 = bc.getSecondValues();
+
+            int[] b1 = domainBounds[bc.getFirstVar()];
+            int[] b2 = domainBounds[bc.getSecondVar()];
+            Relation relation = new Relation(b1[0], b1[1], b2[0], b2[1], valuesInVar1, valuesInVar2)
+                    .intern(relations);
+            cl.add(new Constraint(bc.getFirstVar(), bc.getSecondVar(), relation));
+        }
 
-            HashMap<Variable, int[]> v1 = new HashMap<>();
-            HashMap<Variable, int[]> v2 = new HashMap<>();
+        return cl;
+    }
 
-            for (Variable var : variables) {
-                if (var.getId() == bc.getFirstVar()) {
-                    var1 = var;
-                }
+    /**
+     * Print the counters and the first solution, or -1 for every variable if there is none
+     */
+    public void printSolutions() {
+        System.out.println("#### Output solution ####");
+        System.out.println(searchNodes);
+        System.out.println(arcRevisions);
+        // The variables are unassigned after an enumeration and only partly
+        // assigned when a budget stopped the search, so print the first solution
+        for (Variable v : varList) {
+            System.out.println(firstSolution == null ? -1 : firstSolution[v.getId()]);
+        }
+    }
 
-                if (var.getId() == bc.getSecondVar()) {
-                    var2 = var.getCopy();
-                    var2 = var;
+    /**
+     * Check if all variables are assigned with values
+     */
+    private boolean completeAssignment() {
+        return assignedCount == varList.size();
+    }
+
+    /**
+     * FC 2-way version
+     */
+    public void forwardChecking() {
+        search(false);
+    }
+
+    /**
+     * Maintaining arc consistency
+     */
+    public void mac() {
+        search(true);
+    }
+
+    /**
+     * 2-way branching over an explicit decision stack instead of recursion.
+     * Left branches var = val are pushed as decisions, right branches var != val
+     * are taken at the parent level when a left branch fails
+     */
+    private boolean search(boolean maintainArc) {
+        boolean restarting = !restartPolicy.equals("none") && !allSolutions && splitter == null;
+        if (restarting) {
+            restartCutoff = nextCutoff();
+        }
+        if (nogoodCapacity > 0 && !allSolutions && splitter == null) {
+            nogoods = new NogoodStore(varList, nogoodCapacity);
+            if (conflicts != null) {
+                nogoods.setConflictSets(conflicts);
+            }
+        }
+        if (randomTies) {
+            shuffleTies();
+        }
+        int steps = 0;
+        while (withinBudget(++steps)) {
+            // Check if all variables are assigned
+            if (completeAssignment()) {
+                solutionCount++;
+                if (firstSolution == null) {
+                    firstSolution = copyValues();
+                }
+                solved = true;
+                boolean more = allSolutions && (maxSolutions <= 0 || solutionCount < maxSolutions);
+                if (sink != null) {
+                    for (Variable v : varList) {
+                        sinkValues[v.getId()] = v.getValue();
+                    }
+                    more &= sink.accept(sinkValues);
+                }
+                if (!more) {
+                    // Keep the assignment and finish
+                    return true;
                 }
+                // Carry on with the next right branch, every decision is to blame
+                if (conflicts != null) {
+                    ConflictSets.fill(conflict, depth);
+                }
+                if (!backtrack(maintainArc)) {
+                    return true;
+                }
+                continue;
             }
+            if (restarting && failures >= restartCutoff) {
+                restart();
+            }
+            // Get var based on varOrder
+            Variable var = selectVar();
+            // Get val based on valOrder
+            int val = selectVal(var);
+
+            if (!branchLeft(var, val, maintainArc)) {
+                failures++;
+                if (!backtrack(maintainArc)) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
 
-            int[] ValuesInVar1 = new int[bc.getTuples().size()];
-            int[] ValuesInVar2 = new int[bc.getTuples().size()];
+    /**
+     * Undo every decision and start again from the root with the next cutoff
+     */
+    private void restart() {
+        while (depth > 0) {
+            depth--;
+            undoDecision();
+        }
+        restarts++;
+        failures = 0;
+        restartCutoff = nextCutoff();
+        if (randomTies) {
+            shuffleTies();
+        }
+    }
 
-            for (int counter = 0; counter < bc.getTuples().size(); counter++) {
-                int i = -1;
-                String[] ret = null;
-                ret = bc.getTuples().get(counter).toStringByComma().split(",");
-                i = Integer.parseInt(ret[0]);
-                ValuesInVar1[counter] = i;
-                ValuesInVar2[counter] = (Integer.parseInt(ret[1]));
-            }
+    /**
+     * Failures allowed before the next restart
+     */
+    private long nextCutoff() {
+        if (restartPolicy.equals("luby")) {
+            return restartBase * luby(restarts + 1);
+        }
+        return (long) Math.min(Long.MAX_VALUE / 2, restartBase * Math.pow(restartFactor, restarts));
+    }
 
-            v1.put(var1, ValuesInVar1);
-            v2.put(var2, ValuesInVar2);
+    /**
+     * i-th term of the Luby sequence 1, 1, 2, 1, 1, 2, 4, 1, ... starting from i = 1
+     */
+    private static long luby(long i) {
+        int k = 64 - Long.numberOfLeadingZeros(i);
+        if (i == (1L << k) - 1) {
+            return 1L << (k - 1);
+        }
+        return luby(i - (1L << (k - 1)) + 1);
+    }
+
+    /**
+     * Draw new random ranks for breaking ties between variables
+     */
+    private void shuffleTies() {
+        for (int i = tieRank.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = tieRank[i];
+            tieRank[i] = tieRank[j];
+            tieRank[j] = t;
+        }
+        if (heap != null) {
+            heap.rebuild();
+        }
+    }
 
-            Constraint c = new Constraint(v1, v2);
+    /**
+     * Assign val to var in a new level and propagate
+     */
+    private boolean branchLeft(Variable var, int val, boolean maintainArc) {
 
-            cl.add(c);
+        searchNodes++;
+        // Only hand over right branches which can hold a solution
+        decisionShared[depth] = splitter != null && var.getDomainSize() > 1 && splitter.split(this, var, val);
+        trail.newLevel();
+        if (conflicts != null) {
+            conflicts.newLevel();
+        }
+        decisionVars[depth] = var.getId();
+        decisionVals[depth] = val;
+        depth++;
+        if (depth > maxDepth) {
+            maxDepth = depth;
         }
 
-        return cl;
+        // Add val to var
+        if (heap != null) {
+            heap.remove(var.getId());
+        }
+        assignedCount++;
+        var.assign(val, trail);
+        if (conflicts != null) {
+            // The decision alone explains the domain of var
+            conflicts.setLevel(var.getId(), depth - 1);
+        }
+
+        // Pruning possible future domains
+        return maintainArc ? macAc3(var) : reviseFutureArcs(var);
     }
 
     /**
-     * Generate solutions from varList
+     * Remove val from the domain of var at the current level and propagate.
+     * With backjumping the removal is explained by the levels in conflict
      */
-    public void printSolutions() {
-        solution.add(searchNodes);
-        solution.add(arcRevisions);
-        for (Variable v : varList) {
-            solution.add(v.getValue());
+    private boolean branchRight(Variable var, int val, boolean maintainArc) {
+
+        searchNodes++;
+
+        // Delete value from domain
+        var.prune(val, trail);
+        if (conflicts != null) {
+            conflicts.add(var.getId(), conflict);
         }
-        System.out.println("#### Output solution ####");
-        for (int s : solution) {
-            System.out.println(s);
+
+        if (var.isDomainEmpty()) {
+            blame(var.getId());
+            return false;
         }
+        return maintainArc ? macAc3(var) : true;
     }
 
     /**
-     * Check if all variables are assigned with values
+     * Undo the most recent left decisions and take their right branches until
+     * one is consistent, returns false when the whole tree has been explored
      */
-    private boolean completeAssignment() {
+    private boolean backtrack(boolean maintainArc) {
+        if (conflicts != null) {
+            return backjump(maintainArc);
+        }
+        while (depth > 0) {
+            depth--;
+            Variable var = undoDecision();
+            int val = decisionVals[depth];
+
+            // Another worker owns the right branch
+            if (decisionShared[depth]) {
+                continue;
+            }
+            learn(var, val);
+            if (branchRight(var, val, maintainArc)) {
+                return true;
+            }
+            failures++;
+        }
+        return false;
+    }
 
-        for (Variable v : varList) {
-            if (v.isAssigned() == false) {
+    /**
+     * Undo decisions up to the deepest one in the conflict and take its right
+     * branch, explained by the rest of the conflict. The decisions jumped over
+     * played no part in the failure, so their right branches would fail as well
+     */
+    private boolean backjump(boolean maintainArc) {
+        while (depth > 0) {
+            int culprit = ConflictSets.highest(conflict);
+            if (culprit < 0) {
+                // The failure holds whatever the decisions, there is no solution left
+                while (depth > 0) {
+                    depth--;
+                    undoDecision();
+                }
                 return false;
             }
+            while (depth > culprit + 1) {
+                depth--;
+                undoDecision();
+                skippedLevels++;
+            }
+            depth--;
+            Variable var = undoDecision();
+            int val = decisionVals[depth];
+            ConflictSets.remove(conflict, depth);
+
+            // Another worker owns the right branch, how it fails is unknown here
+            if (decisionShared[depth]) {
+                ConflictSets.fill(conflict, depth);
+                continue;
+            }
+            learn(var, val);
+            if (branchRight(var, val, maintainArc)) {
+                return true;
+            }
+            failures++;
         }
-        return true;
+        return false;
     }
 
     /**
-     * FC 2-way version
+     * Record the failed left branch var = val at the current depth as a nogood
+     * with the decisions above it, or only those in the conflict when backjumping.
+     * The deepest decision is watched with var = val, which is pruned next
      */
-    public void forwardChecking() {
-        // Check if all variables are assigned
-        if (completeAssignment()) {
-            // Output solutions and finish
-            printSolutions();
+    private void learn(Variable var, int val) {
+        if (nogoods == null) {
             return;
         }
-        // Get var based on varOrder
-        Variable var = selectVar();
-        // Get var based on valOrder
-        int val = var.getSmallestDomain();
-        // Branching
-        branchFCLeft(var, val);
-        branchFCRight(var, val);
+        int length = 1;
+        for (int i = depth - 1; i >= 0; i--) {
+            if (conflicts == null || ConflictSets.contains(conflict, i)) {
+                length++;
+            }
+        }
+        // A single literal is the refutation itself, which holds from the root
+        if (length < 2) {
+            return;
+        }
+        int[] lits = new int[2 * length];
+        lits[0] = var.getId();
+        lits[1] = val;
+        int k = 2;
+        for (int i = depth - 1; i >= 0; i--) {
+            if (conflicts == null || ConflictSets.contains(conflict, i)) {
+                lits[k++] = decisionVars[i];
+                lits[k++] = decisionVals[i];
+            }
+        }
+        nogoods.add(lits);
+    }
+
+    /**
+     * Reverse the changes made since the decision at the current depth and unassign its variable
+     */
+    private Variable undoDecision() {
+        Variable var = varList.get(decisionVars[depth]);
+        int val = decisionVals[depth];
+
+        BacktrackEvent event = null;
+        if (FlightRecorder.isInitialized()) {
+            event = new BacktrackEvent();
+            event.begin();
+        }
+        int trailSize = trail.size();
+        undoPruning();
+        var.unassign();
+        assignedCount--;
+        if (heap != null) {
+            heap.insert(var.getId());
+        }
+        backtracks++;
+        if (event != null && event.shouldCommit()) {
+            event.depth = depth;
+            event.var = var.getId();
+            event.val = val;
+            event.restored = trailSize - trail.size();
+            event.commit();
+        }
+        return var;
+    }
+
+    /**
+     * Getters for inspecting the current path
+     */
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getDecisionVar(int level) {
+        return decisionVars[level];
+    }
+
+    public int getDecisionVal(int level) {
+        return decisionVals[level];
+    }
+
+    /**
+     * Package-private access for the benchmark kernels
+     */
+
+    Trail getTrail() {
+        return trail;
+    }
+
+    ArrayList<Variable> getVarList() {
+        return varList;
     }
 
     /**
@@ -177,11 +892,35 @@ public class Solver {
                 break;
             // Smallest domain first
             case "sdf":
-                int smallestDomain = 1000;
+                if (!heap.isEmpty()) {
+                    selectedVar = varList.get(heap.peek());
+                }
+                break;
+            // Largest sum of weights of the constraints with unassigned variables
+            case "wdeg":
+                int largestWeight = -1;
+                for (Variable v : varList) {
+                    if (!v.isAssigned()) {
+                        int w = weightedDegree(v.getId(), true);
+                        if (largestWeight < w || (largestWeight == w && breaksTie(v, selectedVar))) {
+                            largestWeight = w;
+                            selectedVar = v;
+                        }
+                    }
+                }
+                break;
+            // Smallest ratio of domain size to weighted or plain future degree
+            case "dom/wdeg":
+            case "dom/deg":
+                boolean weighted = varOrder.equals("dom/wdeg");
+                double smallestRatio = Double.MAX_VALUE;
                 for (Variable v : varList) {
                     if (!v.isAssigned()) {
-                        if (smallestDomain > v.getDomain().length) {
-                            smallestDomain = v.getDomain().length;
+                        int w = weightedDegree(v.getId(), weighted);
+                        // Variables without future constraints come last
+                        double ratio = w == 0 ? Double.MAX_VALUE / 2 : (double) v.getDomainSize() / w;
+                        if (smallestRatio > ratio || (smallestRatio == ratio && breaksTie(v, selectedVar))) {
+                            smallestRatio = ratio;
                             selectedVar = v;
                         }
                     }
@@ -201,352 +940,379 @@ public class Solver {
     }
 
     /**
-     * Assigned variables are assigned by branchFCLeft
+     * Check if v wins a tie against the current choice, which is only possible
+     * when the ranks have been shuffled since the variables are scanned by id
      */
-    private void branchFCLeft(Variable var, int val) {
-
-        this.branch = Branch.LEFT;
-        searchNodes++;
-
-        // Add val to var
-        var.assign(val);
+    private boolean breaksTie(Variable v, Variable selected) {
+        return randomTies && tieRank[v.getId()] < tieRank[selected.getId()];
+    }
 
-        // Pruning possible future domains
-        if (reviseFutureArcs(var)) {
-            // Forward checking for the rest of the unassigned variables
-            idSequences.clear();
-            forwardChecking();
+    /**
+     * Select the value to try first for var
+     */
+    private int selectVal(Variable var) {
+
+        Domain domain = var.getDomain();
+        switch (valOrder) {
+            // Largest value first
+            case "desc":
+                return domain.last();
+            // Least constraining value: most supports left in the unassigned neighbours
+            case "lcv":
+                int selectedVal = Domain.NONE;
+                long mostSupports = -1;
+                int ties = 0;
+                for (int a = domain.first(); a != Domain.NONE; a = domain.next(a)) {
+                    long supports = 0;
+                    for (int k = graph.getArcsFromStart(var.getId()); k < graph.getArcsFromEnd(var.getId()); k++) {
+                        Arc arc = graph.getArcFrom(k);
+                        Variable other = varList.get(arc.getSecondVar());
+                        if (!other.isAssigned()) {
+                            supports += other.getDomain().countIntersection(arc.getSupports(a));
+                        }
+                    }
+                    if (mostSupports < supports) {
+                        mostSupports = supports;
+                        selectedVal = a;
+                        ties = 1;
+                    } else if (mostSupports == supports && randomTies && random.nextInt(++ties) == 0) {
+                        // Each tied value is kept with equal probability
+                        selectedVal = a;
+                    }
+                }
+                return selectedVal;
+            // Uniformly random value, reproducible from the seed
+            case "random":
+                int n = random.nextInt(domain.size());
+                int val = domain.first();
+                for (int i = 0; i < n; i++) {
+                    val = domain.next(val);
+                }
+                return val;
+            // Default asc, smallest value first
+            default:
+                return domain.first();
         }
-
-        // Reverse the changes made by reviseFutureArcs
-        undoPruning();
-        // Remove val from var
-        var.unassign();
     }
 
     /**
-     * BranchFCRight
+     * Sum of the weights, or the number, of the constraints between var and unassigned variables
      */
-    private void branchFCRight(Variable var, int val) {
-
-        this.branch = Branch.RIGHT;
-        searchNodes++;
-
-        // Delete value from domain
-        var.deleteValue(val);
-        var.savePrune();
-
-        if (!var.isDomainEmpty()) {
-            // Pruning possible future domains
-            if (reviseFutureArcs(var)) {
-                forwardChecking();
+    private int weightedDegree(int var, boolean weighted) {
+        int degree = 0;
+        for (int k = graph.getArcsFromStart(var); k < graph.getArcsFromEnd(var); k++) {
+            Arc arc = graph.getArcFrom(k);
+            if (!varList.get(arc.getSecondVar()).isAssigned()) {
+                degree += weighted ? weights[arc.getConstraintIndex()] : 1;
             }
-            undoPruning();
         }
-        // Restore value to domain
-        var.restoreValue(val);
+        return degree;
     }
 
     /**
-     * Get a list of all constraints where the variable v is connected
+     * Procedure for pruning possible future domains
      */
-    private ArrayList<Variable> getFutureVars(Variable root) {
+    private boolean reviseFutureArcs(Variable var) {
+
+        PropagationEvent event = beginPropagation();
+        long start = instrumented ? System.nanoTime() : 0;
+        int trailSize = trail.size();
+        boolean consistent = true;
 
-        // Get all future variables
-        ArrayList<Variable> futureVars = new ArrayList<Variable>();
+        if (nogoods != null && !nogoods.propagate(var.getId(), trail, null)) {
+            blameNogood();
+            return endPropagation(event, start, trailSize, false);
+        }
 
-        for (Constraint c : constraintList) {
-            if (c.getFirstMap().containsKey(root)) {
-                futureVars.add(c.getSecondVar());
+        // Revise every future variable against the assigned one
+        for (int k = graph.getArcsToStart(var.getId()); k < graph.getArcsToEnd(var.getId()); k++) {
+            Arc arc = graph.getArcTo(k);
+            Variable future = varList.get(arc.getFirstVar());
+            if (!future.isAssigned()) {
+                revise(arc);
+                if (future.isDomainEmpty()) {
+                    weights[arc.getConstraintIndex()]++;
+                    blame(future.getId());
+                    consistent = false;
+                    break;
+                }
             }
         }
-        return futureVars;
+        return endPropagation(event, start, trailSize, consistent);
     }
 
     /**
-     * Procedure for pruning possible future domains
+     * Check consistency of the arcs pointing at the given variables
      */
-    private boolean reviseFutureArcs(Variable var) {
-
-        // Get future variables
-        ArrayList<Variable> futureVars = getFutureVars(var);
-        return ac3(futureVars, var);
+    public boolean ac3(ArrayList<Variable> changedVars) {
+        for (Variable v : changedVars) {
+            queue.add(v.getId());
+        }
+        return propagate();
     }
 
     /**
-     * Maintaining arc consistency
+     * AC3 algorithm for MAC
      */
-    public void mac() {
-
-        // Get a value from varList and a value from domain
-        Variable var = selectVar();
-        int val = var.getSmallestDomain();
+    public boolean macAc3(Variable var) {
+        queue.add(var.getId());
+        return propagate();
+    }
 
-        // Add val to var
-        var.assign(val);
+    /**
+     * Propagate the queued variables, timing the call and recording it for JFR
+     */
+    private boolean propagate() {
+        PropagationEvent event = beginPropagation();
+        long start = instrumented ? System.nanoTime() : 0;
+        int trailSize = trail.size();
+        return endPropagation(event, start, trailSize, propagateQueue());
+    }
 
-        if (completeAssignment()) {
-            printSolutions();
-            return;
-        } else if (macAc3(var)) {
-            // Having assigned a value to a variable, reestablish AC
-            mac();
+    /**
+     * Event for a propagation call, or null when Flight Recorder is not initialised
+     */
+    private PropagationEvent beginPropagation() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
         }
+        PropagationEvent event = new PropagationEvent();
+        event.begin();
+        return event;
+    }
 
-        // Reverse the changes made by reviseFutureArcs
-        undoPruning();
-        // Remove val from var
-        var.unassign();
-        // Removing val from domain
-        var.prune(val);
-        var.savePrune();
-
-        if (!var.isDomainEmpty()) {
-            if (macAc3(var)) {
-                mac();
-            }
-            // Reverse the changes made by reviseFutureArcs
-            undoPruning();
+    /**
+     * Account for a propagation call that started at start with trailSize pruned values
+     */
+    private boolean endPropagation(PropagationEvent event, long start, int trailSize, boolean consistent) {
+        if (instrumented) {
+            propagationNanos += System.nanoTime() - start;
+        }
+        if (event != null && event.shouldCommit()) {
+            event.depth = depth;
+            event.pruned = trail.size() - trailSize;
+            event.consistent = consistent;
+            event.commit();
         }
-        // Replace the most recently removed value
-        var.replaceVal();
+        return consistent;
     }
 
     /**
-     * Check consistent through ac3 revises arcs algorithm
+     * Revise the arcs pointing at each changed variable until no domain changes,
+     * then run the allDifferents on the changed variables and start again
      */
-    public boolean ac3(ArrayList<Variable> futureVars, Variable v) {
-        boolean changed = false;
-        arcList = createArcList(v, futureVars, "from");
-        Arc currentArc;
-
-        // Revise domains unless arcList is not empty
-        while (!arcList.isEmpty()) {
+    private boolean propagateQueue() {
+
+        while (true) {
+            while (!queue.isEmpty()) {
+                int var = queue.poll();
+
+                // The nogoods watching var once its domain is down to one value
+                if (nogoods != null && varList.get(var).getDomainSize() == 1
+                        && !nogoods.propagate(var, trail, queue)) {
+                    blameNogood();
+                    queue.clear();
+                    if (allDifferentQueue != null) {
+                        allDifferentQueue.clear();
+                    }
+                    return false;
+                }
 
-            currentArc = arcList.pop();
-            idSequences.addLast(currentArc.getSecondVar().getId());
+                for (int k = graph.getArcsToStart(var); k < graph.getArcsToEnd(var); k++) {
+                    Arc arc = graph.getArcTo(k);
+
+                    // Queue the revised variable if there is a change
+                    if (revise(arc)) {
+
+                        // Check if a cancel is needed
+                        if (varList.get(arc.getFirstVar()).isDomainEmpty()) {
+                            weights[arc.getConstraintIndex()]++;
+                            blame(arc.getFirstVar());
+                            queue.clear();
+                            if (allDifferentQueue != null) {
+                                allDifferentQueue.clear();
+                            }
+                            return false;
+                        }
+                        queue.add(arc.getFirstVar());
+                    }
+                }
 
-            if (currentArc.getFirstVar().getInDomainAndUnmarked() == null) {
-                return false;
+                if (allDifferentQueue != null) {
+                    for (int p : varAllDifferents[var]) {
+                        allDifferentQueue.add(p);
+                    }
+                }
             }
 
-            // Revise by branch direction
-            switch (this.branch) {
-                case LEFT:
-                    changed = reviseForBranchLeft(currentArc);
-                    break;
-                case RIGHT:
-                    changed = reviseForBranchRight(currentArc);
-                    break;
+            if (allDifferentQueue == null || allDifferentQueue.isEmpty()) {
+                return true;
             }
-
-            currentArc.getSecondVar().saveMark();
-
-            // Add all arcs to the queue if there is a change
-            if (changed) {
-
-                // Add the changed variable to pruned var list
-                prunedList.push(currentArc.getFirstVar());
-
-                // Check if a cancel is needed
-                if (currentArc.getSecondVar().isNeedCancel()) {
-                    return false;
+            AllDifferent propagator = allDifferents[allDifferentQueue.poll()];
+            int trailSize = trail.size();
+            if (!propagator.propagate(trail, queue)) {
+                allDifferentQueue.clear();
+                if (conflicts != null) {
+                    ConflictSets.clear(conflict);
+                    for (int v : propagator.getVars()) {
+                        conflicts.collect(v, conflict);
+                    }
                 }
-
-                // Get all variables based on the first variable in the arc
-                ArrayList<Variable> connectedVars = getVarListBasedOnGivenVariables(currentArc.getFirstVar());
-
-                // Generate newArcList from currentArc
-                LinkedList<Arc> newArcList = createArcList(currentArc.getFirstVar(), connectedVars, "to");
-                newArcList.remove(currentArc);
-
-                // Merge current and new arcList
-                mergeArcList(newArcList);
+                return false;
+            }
+            if (conflicts != null && trail.size() > trailSize) {
+                explainAllDifferent(propagator, trailSize);
             }
         }
-
-        return true;
     }
 
     /**
-     * Add another arcList to this arcList
+     * The values an allDifferent removed since trailSize are explained by the
+     * removals from every variable of its scope
      */
-    public void mergeArcList(LinkedList<Arc> al) {
-        for (Arc arc : al) {
-            if (arc != null) {
-                arcList.add(arc);
-            }
+    private void explainAllDifferent(AllDifferent propagator, int trailSize) {
+        ConflictSets.clear(explanation);
+        for (int v : propagator.getVars()) {
+            conflicts.collect(v, explanation);
+        }
+        for (int i = trailSize; i < trail.size(); i++) {
+            conflicts.add(trail.getVar(i), explanation);
         }
     }
 
     /**
-     * AC3 algorithm for MAC
+     * Set up the conflict sets for backjumping
      */
-    public boolean macAc3(Variable var) {
-
-        // Get future variables
-        ArrayList<Variable> futureVars = getFutureVars(var);
-        return ac3(futureVars, var);
+    private void initConflicts() {
+        conflicts = new ConflictSets(varList.size());
+        conflict = conflicts.newSet();
+        explanation = conflicts.newSet();
     }
 
     /**
-     * Reverses the changes made by reviseFutureArcs
+     * Blame the failure on the levels explaining the literals of the nogood which failed
      */
-    private void undoPruning() {
-        Variable v;
-        for (int i = prunedList.size() - 1; i >= 0; i--) {
-            v = prunedList.remove(i);
-            v.replaceVal();
-        }
-
-        for (int i = 0; i < idSequences.size(); i++) {
-            for (Variable vv : varList) {
-                if (idSequences.getLast() == vv.getId()) {
-                    vv.undoMarking();
-                }
-            }
+    private void blameNogood() {
+        if (conflicts != null) {
+            ConflictSets.clear(conflict);
+            nogoods.explainFailure(conflict);
         }
-
-        idSequences.clear();
     }
 
     /**
-     * Create an arcList with the first variable, variables, and direction
+     * Blame the failure on the levels explaining the removals from var
      */
-    private LinkedList<Arc> createArcList(Variable firstVar, ArrayList<Variable> variableList, String direction) {
-
-        LinkedList<Arc> arcList = new LinkedList<Arc>();
-        Arc arc;
-
-        if (direction.equals("to")) {
-            for (Variable var : variableList) {
-                arc = new Arc(var, firstVar);
-                arcList.add(arc);
-            }
-        } else if (direction.equals("from")) {
-            for (Variable var : variableList) {
-                arc = new Arc(firstVar, var);
-                arcList.add(arc);
-            }
+    private void blame(int var) {
+        if (conflicts != null) {
+            ConflictSets.clear(conflict);
+            conflicts.collect(var, conflict);
         }
-
-        return arcList;
     }
 
     /**
-     * Gets a list of all variables that are incident on a given variable v
+     * Build the propagators for the allDifferent cliques of the graph if enabled
      */
-    private ArrayList<Variable> getVarListBasedOnGivenVariables(Variable var) {
-
-        ArrayList<Variable> results = new ArrayList<>();
-
-        for (Constraint c : constraintList) {
-            if (c.getSecondVar().equals(var)) {
-                results.add(c.getFirstVar());
+    private void initAllDifferents() {
+        if (!allDifferent) {
+            return;
+        }
+        List<int[]> scopes = graph.getAllDifferents();
+        allDifferents = new AllDifferent[scopes.size()];
+        int[] count = new int[varList.size()];
+        for (int p = 0; p < scopes.size(); p++) {
+            allDifferents[p] = new AllDifferent(scopes.get(p), varList);
+            for (int v : scopes.get(p)) {
+                count[v]++;
+            }
+        }
+        varAllDifferents = new int[varList.size()][];
+        for (int v = 0; v < varList.size(); v++) {
+            varAllDifferents[v] = new int[count[v]];
+            count[v] = 0;
+        }
+        for (int p = 0; p < scopes.size(); p++) {
+            for (int v : scopes.get(p)) {
+                varAllDifferents[v][count[v]++] = p;
             }
         }
-        return results;
+        allDifferentQueue = new PropagationQueue(allDifferents.length);
     }
 
     /**
-     * Add secondtVarValues to supportList if the val supports values in the domain
-     * of the secondVar
+     * Reverses the pruning done since the last branch
      */
-    public ArrayList<Integer> getSupportList(int val, Arc arc) {
-
-        ArrayList<Integer> supportList = new ArrayList<>();
-
-        for (Constraint c : constraintList) {
-
-            if (c.getFirstVar().equals(arc.getFirstVar()) && c.getSecondVar().equals(arc.getSecondVar())) {
-
-                int[] firstVarValues = c.getFirstMap().get(arc.getFirstVar());
-                int[] secondtVarValues = c.getSecondMap().get(arc.getSecondVar());
-
-                for (int i = 0; i < firstVarValues.length; i++) {
-                    if (firstVarValues[i] == val) {
-                        supportList.add(secondtVarValues[i]);
-                    }
-                }
-            }
+    private void undoPruning() {
+        trail.backtrack();
+        if (conflicts != null) {
+            conflicts.backtrack();
         }
-
-        return supportList;
     }
 
     /**
-     * Check if given variables satisfy any constraints
+     * Allocate one residue slot per value of the firstVar of every arc
      */
-    private boolean reviseForBranchLeft(Arc arc) {
-
-        this.arcRevisions++;
-        boolean changed = false;
-        boolean supported;
-        ArrayList<Integer> supportedValuesInSecondVar;
-
-        // Exit AC3 early if domain is empty
-        if (arc.getSecondVar().isDomainEmpty()) {
-            return changed;
+    private void initResidues() {
+        residueStart = new int[graph.getNoArcs()];
+        int size = 0;
+        for (int id = 0; id < graph.getNoArcs(); id++) {
+            residueStart[id] = size;
+            Domain d = varList.get(graph.getArc(id).getFirstVar()).getDomain();
+            size += d.getUB() - d.getLB() + 1;
         }
-
-        // Check if the value in the domain supports in the secondVar and get support
-        // varList
-        supportedValuesInSecondVar = getSupportList(arc.getFirstVar().getValue(), arc);
-
-        // Check if the domain of secondVar supports at least one value
-        supported = arc.getSecondVar().hasSupport(supportedValuesInSecondVar);
-
-        // Pruning the value from the domain of firstVar if there is no support
-        if (supported == false) {
-
-            arc.getFirstVar().prune(arc.getFirstVar().getValue());
-            changed = true;
-            arc.getSecondVar().markUnsupportedValues(supportedValuesInSecondVar);
-        }
-
-        // Remove the values from the domain of secondVar if they are not supported by
-        // the current value of firstVar
-        arc.getSecondVar().markUnsupportedValues(supportedValuesInSecondVar);
-
-        return changed;
+        residues = new int[size];
+        Arrays.fill(residues, Domain.NONE);
     }
 
     /**
-     * Check if given variables satisfy any constraints
+     * Prune the values of the firstVar which have no support in the secondVar.
+     * arcRevisions counts constraint checks, one per (a, b) pair tested, as a scan
+     * of the values of the secondVar would: up to the first support, or all of
+     * them when there is none. The bitsets test a word of pairs at once.
+     * mac-rm first checks the residue, one check, and only scans when it is gone.
+     * Package-private for the benchmark kernels
      */
-    private boolean reviseForBranchRight(Arc arc) {
+    boolean revise(Arc arc) {
 
-        this.arcRevisions++;
         boolean changed = false;
-        boolean supported;
-
-        ArrayList<Integer> supportedValuesInSecondVar;
-
-        // Exit AC3 early if domain is empty
-        if (arc.getSecondVar().isDomainEmpty()) {
-            return changed;
-        }
+        Variable first = varList.get(arc.getFirstVar());
+        Domain domain = first.getDomain();
+        Domain secondDomain = varList.get(arc.getSecondVar()).getDomain();
+
+        for (int a = domain.first(); a != Domain.NONE; a = domain.next(a)) {
+            long[] supports = arc.getSupports(a);
+
+            if (residues != null) {
+                int slot = residueStart[arc.getId()] + a - domain.getLB();
+                // The support found last time is still there
+                this.arcRevisions++;
+                if (secondDomain.contains(residues[slot])) {
+                    continue;
+                }
+                int b = secondDomain.firstIntersection(supports);
+                if (b != Domain.NONE) {
+                    this.arcRevisions += secondDomain.countUpTo(b);
+                    residues[slot] = b;
+                    continue;
+                }
+                this.arcRevisions += secondDomain.size();
+            } else {
+                int b = secondDomain.firstIntersection(supports);
+                if (b != Domain.NONE) {
+                    this.arcRevisions += secondDomain.countUpTo(b);
+                    continue;
+                }
+                this.arcRevisions += secondDomain.size();
+            }
 
-        // Get all values in the domain of the firstVar and check if
-        // they support in the domain of the second variable
-        int[] InDomainAndUnmarked = arc.getFirstVar().getInDomainAndUnmarked();
-        if (InDomainAndUnmarked == null) {
-            return changed;
+            // Prune the value if the secondVar has no value supporting it
+            first.prune(a, trail);
+            changed = true;
         }
 
-        for (int i : InDomainAndUnmarked) {
-            // Check if the value in the domain supports in the secondVar
-            supportedValuesInSecondVar = getSupportList(i, arc);
-            supported = arc.getSecondVar().hasSupport(supportedValuesInSecondVar);
-
-            // Prune the domain of the firstVar if there is no support
-            if (supported == false) {
-                arc.getFirstVar().prune(arc.getFirstVar().getValue());
-                changed = true;
-                arc.getSecondVar().markUnsupportedValues(supportedValuesInSecondVar);
-            }
+        // The pruned values lost their supports through the removals from the secondVar
+        if (changed && conflicts != null) {
+            conflicts.addSet(arc.getFirstVar(), arc.getSecondVar());
         }
-
         return changed;
     }
 }
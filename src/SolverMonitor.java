@@ -0,0 +1,99 @@
+import java.lang.management.*;
+import javax.management.*;
+
+/**
+ * JMX view of a Solver under ConstraintSolver:type=Solver,name=<name>.
+ * The counters are read without synchronisation while the search runs, so they
+ * are live approximations. Nodes per second is measured since the previous query
+ */
+public class SolverMonitor implements SolverMonitorMBean {
+
+    private final Solver solver;
+    private final ObjectName name;
+    private final long start = System.nanoTime();
+    private long lastTime = start;
+    private long lastNodes = 0;
+
+    /**
+     * Constructor
+     */
+    private SolverMonitor(Solver solver, ObjectName name) {
+        this.solver = solver;
+        this.name = name;
+    }
+
+    /**
+     * Register a monitor for the solver, which starts timing its propagation
+     */
+    public static SolverMonitor register(Solver solver, String name) throws JMException {
+        SolverMonitor monitor = new SolverMonitor(solver,
+                new ObjectName("ConstraintSolver:type=Solver,name=" + ObjectName.quote(name)));
+        solver.setInstrumented(true);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(monitor, monitor.name);
+        return monitor;
+    }
+
+    /**
+     * Remove the monitor from the platform MBean server
+     */
+    public void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            // Already gone
+        }
+    }
+
+    /**
+     * Getters
+     */
+
+    public long getSearchNodes() {
+        return solver.getSearchNodes();
+    }
+
+    public long getArcRevisions() {
+        return solver.getArcRevisions();
+    }
+
+    public long getBacktracks() {
+        return solver.getBacktracks();
+    }
+
+    public int getDepth() {
+        return solver.getDepth();
+    }
+
+    public int getMaxDepth() {
+        return solver.getMaxDepth();
+    }
+
+    public long getRestarts() {
+        return solver.getRestarts();
+    }
+
+    public long getSkippedLevels() {
+        return solver.getSkippedLevels();
+    }
+
+    public long getPropagationTimeMillis() {
+        return solver.getPropagationNanos() / 1000000;
+    }
+
+    public long getElapsedMillis() {
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    public synchronized double getNodesPerSecond() {
+        long now = System.nanoTime();
+        long nodes = solver.getSearchNodes();
+        double rate = now > lastTime ? (nodes - lastNodes) * 1e9 / (now - lastTime) : 0;
+        lastTime = now;
+        lastNodes = nodes;
+        return rate;
+    }
+
+    public boolean isSolved() {
+        return solver.isSolved();
+    }
+}
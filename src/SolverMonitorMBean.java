@@ -0,0 +1,27 @@
+/**
+ * Live counters of a running Solver
+ */
+public interface SolverMonitorMBean {
+
+    long getSearchNodes();
+
+    long getArcRevisions();
+
+    long getBacktracks();
+
+    int getDepth();
+
+    int getMaxDepth();
+
+    long getRestarts();
+
+    long getSkippedLevels();
+
+    long getPropagationTimeMillis();
+
+    long getElapsedMillis();
+
+    double getNodesPerSecond();
+
+    boolean isSolved();
+}
@@ -0,0 +1,85 @@
+/**
+ * Outcome of a Solver run: SAT with the first solution, UNSAT once the whole tree
+ * has been explored, or UNKNOWN when a budget ran out or the run was cancelled
+ * first. The statistics are those reached when the search stopped.
+ */
+public class SolverResult {
+
+    public enum Status {
+        SAT, UNSAT, UNKNOWN
+    }
+
+    private final Status status;
+    private final String stopReason;
+    private final int[] solution;
+    private final long solutionCount;
+    private final long searchNodes;
+    private final long arcRevisions;
+    private final long backtracks;
+    private final long elapsedNanos;
+
+    /**
+     * Constructor, stopReason is null unless a budget or a cancel ended the search
+     */
+    public SolverResult(Status status, String stopReason, int[] solution, long solutionCount, long searchNodes,
+            long arcRevisions, long backtracks, long elapsedNanos) {
+        this.status = status;
+        this.stopReason = stopReason;
+        this.solution = solution;
+        this.solutionCount = solutionCount;
+        this.searchNodes = searchNodes;
+        this.arcRevisions = arcRevisions;
+        this.backtracks = backtracks;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Getters
+     */
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * nodes, revisions, time or cancelled, null when the search ran to completion.
+     * A SAT enumeration that was stopped has not necessarily found every solution
+     */
+    public String getStopReason() {
+        return stopReason;
+    }
+
+    /**
+     * First solution indexed by variable id, null unless SAT
+     */
+    public int[] getSolution() {
+        return solution;
+    }
+
+    public long getSolutionCount() {
+        return solutionCount;
+    }
+
+    public long getSearchNodes() {
+        return searchNodes;
+    }
+
+    public long getArcRevisions() {
+        return arcRevisions;
+    }
+
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "status=" + status + (stopReason == null ? "" : " stopped=" + stopReason) + " searchNodes="
+                + searchNodes + " arcRevisions=" + arcRevisions + " backtracks=" + backtracks + " timeMs="
+                + elapsedNanos / 1000000;
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.*;
+
+/**
+ * Solver-wide undo stack of removed (var, value) records.
+ * Each search level opens a checkpoint and backtracking restores every value
+ * removed since that checkpoint, so undoing costs O(changes undone).
+ */
+public class Trail {
+
+    private final Variable[] vars;
+    private int[] removedVars;
+    private int[] removedVals;
+    private int size = 0;
+    private int[] checkpoints = new int[16];
+    private int level = 0;
+    private Listener listener = null;
+
+    /**
+     * Told about every domain change going through the trail, in both directions
+     */
+    public interface Listener {
+        void domainChanged(int var);
+    }
+
+    /**
+     * Constructers
+     */
+    public Trail(List<Variable> varList) {
+        this.vars = varList.toArray(new Variable[0]);
+        // A value is removed at most once along a path, so the total domain size
+        // bounds the trail and it never has to grow during search
+        int capacity = 0;
+        for (Variable v : varList) {
+            capacity += v.getDomainSize();
+        }
+        this.removedVars = new int[capacity];
+        this.removedVals = new int[capacity];
+    }
+
+    /**
+     * Setters
+     */
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Getters
+     */
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Variable of the i-th removal on the trail
+     */
+    public int getVar(int i) {
+        return removedVars[i];
+    }
+
+    /**
+     * Record that val has been removed from the domain of var
+     */
+    public void push(int var, int val) {
+        if (size == removedVars.length) {
+            removedVars = Arrays.copyOf(removedVars, size * 2 + 1);
+            removedVals = Arrays.copyOf(removedVals, size * 2 + 1);
+        }
+        removedVars[size] = var;
+        removedVals[size] = val;
+        size++;
+        if (listener != null) {
+            listener.domainChanged(var);
+        }
+    }
+
+    /**
+     * Open a new level, later removals are undone by backtrack
+     */
+    public void newLevel() {
+        if (level == checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, level * 2);
+        }
+        checkpoints[level++] = size;
+    }
+
+    /**
+     * Restore every value removed since the most recent level was opened
+     */
+    public void backtrack() {
+        int checkpoint = checkpoints[--level];
+        while (size > checkpoint) {
+            size--;
+            vars[removedVars[size]].getDomain().restore(removedVals[size]);
+            if (listener != null) {
+                listener.domainChanged(removedVars[size]);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import java.util.*;
+
+/**
+ * Shares one pair of tuple arrays between constraints listing the same tuples
+ * in the same order, e.g. the != constraints repeated all over Sudoku and Langford files
+ */
+public class TupleInterner {
+
+    private final HashMap<Key, Key> tables = new HashMap<Key, Key>();
+
+    /**
+     * The first count values of both arrays as shared arrays {firstValues, secondValues}.
+     * The returned arrays must not be modified
+     */
+    public int[][] intern(int[] firstValues, int[] secondValues, int count) {
+        Key probe = new Key(firstValues, secondValues, count);
+        Key shared = tables.get(probe);
+        if (shared == null) {
+            shared = new Key(Arrays.copyOf(firstValues, count), Arrays.copyOf(secondValues, count), count);
+            tables.put(shared, shared);
+        }
+        return new int[][] { shared.firstValues, shared.secondValues };
+    }
+
+    /**
+     * Content of a tuple table, compared over the first count entries
+     */
+    private static final class Key {
+        private final int[] firstValues;
+        private final int[] secondValues;
+        private final int count;
+        private final int hash;
+
+        Key(int[] firstValues, int[] secondValues, int count) {
+            this.firstValues = firstValues;
+            this.secondValues = secondValues;
+            this.count = count;
+            int h = count;
+            for (int i = 0; i < count; i++) {
+                h = 31 * (31 * h + firstValues[i]) + secondValues[i];
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return hash == k.hash && count == k.count
+                    && Arrays.equals(firstValues, 0, count, k.firstValues, 0, count)
+                    && Arrays.equals(secondValues, 0, count, k.secondValues, 0, count);
+        }
+    }
+}
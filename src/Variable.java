@@ -2,15 +2,12 @@ import java.util.*;
 
 public class Variable {
 
-    private int id = -1;
-    private int value = -1;
-    private int[] domain = null;
-    private int[] assigned;
+    // Value of an unassigned variable, outside every domain
+    public static final int UNASSIGNED = Domain.NONE;
 
-    private LinkedList<Integer> prunedList = new LinkedList<>();
-    private LinkedList<ArrayList<Integer>> markedList = new LinkedList<ArrayList<Integer>>();
-    private ArrayList<Integer> mostRecentlyPrunedList = new ArrayList<Integer>();
-    private ArrayList<Integer> mostRecentlyMarkedList = new ArrayList<Integer>();
+    private int id = -1;
+    private int value = UNASSIGNED;
+    private Domain domain = null;
 
     /**
      * Constructers
@@ -19,7 +16,7 @@ public class Variable {
     public Variable() {
     }
 
-    public Variable(int id, int[] d) {
+    public Variable(int id, Domain d) {
         this.id = id;
         this.domain = d;
     }
@@ -36,208 +33,74 @@ public class Variable {
         return this.value;
     }
 
-    public int[] getDomain() {
+    public Domain getDomain() {
         return this.domain;
     }
 
+    public int getDomainSize() {
+        return this.domain.size();
+    }
+
     /**
      * Setters
      */
 
-    public void setDomain(int[] domain) {
+    public void setDomain(Domain domain) {
         this.domain = domain;
     }
 
-    /**
-     * Set val to var
-     */
-    public void assign(int value) {
+    public void setValue(int value) {
         this.value = value;
-        assigned = Utils.add(assigned, value);
-    }
-
-    /**
-     * Remove val from var
-     */
-    public void unassign() {
-        this.value = -1;
-    }
-
-    /**
-     * Delete a value from the domain
-     */
-    public void deleteValue(int value) {
-        this.domain = Utils.removeElement(this.domain, value);
     }
 
     /**
-     * Restore a pruned value to the domain
+     * Set val to var and prune every other value, recording the removals on the trail
      */
-    public void restoreValue(int val) {
-        this.domain = Utils.add(this.domain, val);
-        Arrays.sort(domain);
-    }
-
-    /**
-     * Removes a value from the domain and add it to the prune list
-     */
-    public void prune(int d) {
-        this.domain = Utils.removeElement(this.domain, d);
-        this.prunedList.add(d);
-    }
-
-    /**
-     * Add mostRecentlyPrunedList to prunedList and init mostRecentlyPrunedList
-     */
-    public void savePrune() {
-        if (mostRecentlyPrunedList.size() > 0) {
-            prunedList.add(mostRecentlyPrunedList.get(0));
-            mostRecentlyPrunedList = new ArrayList<Integer>();
-        }
-
-    }
-
-    /**
-     * Add mostRecentlyMarkedList to markedList and init mostRecentlyMarkedList
-     */
-    public void saveMark() {
-        if (mostRecentlyMarkedList.size() > 0) {
-            markedList.add(mostRecentlyMarkedList);
-            mostRecentlyMarkedList = new ArrayList<Integer>();
+    public void assign(int value, Trail trail) {
+        this.value = value;
+        for (int d = domain.first(); d != Domain.NONE; d = domain.next(d)) {
+            if (d != value) {
+                prune(d, trail);
+            }
         }
-
     }
 
     /**
-     * Get copy of the variable
-     */
-    public Variable getCopy() {
-        Variable newVar = new Variable(this.id, this.domain);
-        newVar.setDomain(this.getDomain());
-        return newVar;
-    }
-
-    /**
-     * Reverses the changes made by reviseFutureArcs
-     */
-    public void replaceVal() {
-        int val = this.prunedList.remove(prunedList.size() - 1);
-        this.domain = Utils.add(this.domain, val);
-    }
-
-    /**
-     * Remove last element from markedList if it is not empty
+     * Remove val from var
      */
-    public void undoMarking() {
-        if (!markedList.isEmpty()) {
-            markedList.removeLast();
-        }
+    public void unassign() {
+        this.value = UNASSIGNED;
     }
 
     /**
-     * This happens if the domain is empty,
+     * Removes a value from the domain and records it on the trail
      */
-    public boolean isNeedCancel() {
-        for (int i : domain) {
-            if (!prunedList.contains(i) && !isMarked(i)) {
-                return false;
-            }
+    public boolean prune(int d, Trail trail) {
+        if (this.domain.remove(d)) {
+            trail.push(this.id, d);
+            return true;
         }
-        return true;
+        return false;
     }
 
     /**
      * Get smallest domain
      */
     public int getSmallestDomain() {
-        int smallestDomain = 1000;
-        for (int d : domain) {
-            if (smallestDomain > d && !Utils.contains(this.assigned, d) && !this.isMarked(d)) {
-                smallestDomain = d;
-            }
-        }
-        return smallestDomain;
+        return this.domain.first();
     }
 
     /**
      * Checks if the domain is empty
      */
     public boolean isDomainEmpty() {
-        return this.domain.length == 0;
+        return this.domain.isEmpty();
     }
 
     /**
      * Assign check
      */
     public boolean isAssigned() {
-        return value >= 0;
-    }
-
-    /**
-     * Check if the value is marked
-     */
-    public boolean isMarked(int a) {
-        for (ArrayList<Integer> l : markedList) {
-            if (l.contains(a)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Check if vars have the same id
-     */
-    public boolean equals(Variable v) {
-        return this.id == v.getId();
-    }
-
-    /**
-     * Check if the domain include the value
-     */
-    public boolean hasSupport(int value) {
-        return Utils.contains(this.domain, value);
-    }
-
-    /**
-     * Check if the domain include the values in supports
-     */
-    public boolean hasSupport(ArrayList<Integer> supports) {
-        int intersection_count = 0;
-
-        for (int s : supports) {
-            if (Utils.contains(this.domain, s) && !isMarked(s)) {
-                intersection_count += 1;
-            }
-        }
-
-        return intersection_count >= 1;
-    }
-
-    /**
-     * Remove the unsupported values from the domain
-     */
-    public void markUnsupportedValues(ArrayList<Integer> supported_values) {
-        for (int k = 0; k < this.domain.length; k++) {
-            if (!supported_values.contains(this.domain[k]) && !isMarked(this.domain[k])) {
-                mostRecentlyMarkedList.add(this.domain[k]);
-            }
-        }
-    }
-
-    /**
-     * Get the integer list which includes unmarked variables and domain
-     */
-    public int[] getInDomainAndUnmarked() {
-        int[] inDomainUnmarked = null;
-
-        for (int d : domain) {
-            if (!isMarked(d)) {
-                inDomainUnmarked = Utils.add(inDomainUnmarked, d);
-            }
-        }
-
-        return inDomainUnmarked;
-
+        return value != UNASSIGNED;
     }
 }
@@ -0,0 +1,122 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.stream.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.*;
+
+/**
+ * Clique detection over the != constraints and the matching-based pruning, alone
+ * and inside the MAC algorithms
+ */
+public class AllDifferentTest {
+
+    static Stream<Arguments> macConfigurations() {
+        return TestCSPs.configurations().filter(args -> ((String) args.get()[0]).startsWith("mac"));
+    }
+
+    @Test
+    void prunesValuesOutsideEveryMatching() {
+        ArrayList<Variable> vars = variables(new int[][] { { 0, 1 }, { 0, 1 }, { 0, 2 } });
+        PropagationQueue queue = new PropagationQueue(vars.size());
+        AllDifferent propagator = new AllDifferent(new int[] { 0, 1, 2 }, vars);
+        assertTrue(propagator.propagate(new Trail(vars), queue));
+        assertArrayEquals(new int[] { 0, 1 }, vars.get(0).getDomain().toArray());
+        assertArrayEquals(new int[] { 2 }, vars.get(2).getDomain().toArray());
+        assertTrue(queue.contains(2));
+        assertFalse(queue.contains(0));
+    }
+
+    @Test
+    void failsWithoutEnoughValues() {
+        ArrayList<Variable> vars = variables(new int[][] { { 0, 1 }, { 0, 1 }, { 0, 1 } });
+        AllDifferent propagator = new AllDifferent(new int[] { 0, 1, 2 }, vars);
+        assertFalse(propagator.propagate(new Trail(vars), new PropagationQueue(vars.size())));
+    }
+
+    @Test
+    void coversEveryDisequalityWithCliques() {
+        for (String name : new String[] { "FinnishSudoku", "SimonisSudoku", "8Queens" }) {
+            ConstraintGraph graph = Solver.compile(TestCSPs.problem(name));
+            Set<List<Integer>> edges = new HashSet<List<Integer>>();
+            for (int c = 0; c < graph.getNoConstraints(); c++) {
+                Constraint con = graph.getConstraint(c);
+                if (AllDifferentDetector.isDisequality(con.getRelation())) {
+                    edges.add(edge(con.getFirstVar(), con.getSecondVar()));
+                }
+            }
+
+            Set<List<Integer>> covered = new HashSet<List<Integer>>();
+            for (int[] clique : AllDifferentDetector.findCliques(graph, 2)) {
+                assertTrue(clique.length >= 2, name);
+                for (int i = 0; i < clique.length; i++) {
+                    for (int j = i + 1; j < clique.length; j++) {
+                        assertTrue(edges.contains(edge(clique[i], clique[j])), name + ": not a clique");
+                        covered.add(edge(clique[i], clique[j]));
+                    }
+                }
+            }
+            // The sudokus are nothing but != constraints, the queens have none
+            assertEquals(edges, covered, name);
+            assertEquals(name.equals("8Queens"), edges.isEmpty(), name);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("macConfigurations")
+    void countsSolutions(String algorithm, String varOrder) {
+        for (Map.Entry<String, Long> e : TestCSPs.COUNTS.entrySet()) {
+            BinaryCSP csp = TestCSPs.problem(e.getKey());
+            TestCSPs.Solutions solutions = new TestCSPs.Solutions(csp);
+            Solver solver = new Solver(csp, varOrder, "asc");
+            solver.setAllSolutions(true);
+            solver.setAllDifferent(true);
+            solver.setSolutionSink(solutions);
+            assertEquals(SolverResult.Status.SAT, solver.run(algorithm).getStatus(), e.getKey());
+            assertEquals(e.getValue(), solutions.size(), e.getKey());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("macConfigurations")
+    void solvesSudokus(String algorithm, String varOrder) {
+        for (String name : new String[] { "FinnishSudoku", "SimonisSudoku" }) {
+            BinaryCSP csp = TestCSPs.problem(name);
+            Solver solver = new Solver(csp, varOrder, "asc");
+            solver.setAllDifferent(true);
+            SolverResult result = solver.run(algorithm);
+            assertEquals(SolverResult.Status.SAT, result.getStatus(), name);
+            TestCSPs.assertValid(csp, result.getSolution(), name);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("configurations")
+    void provesUnsatisfiability(String algorithm, String varOrder) {
+        // Ignored outside MAC, which must still give the same answer
+        for (String name : TestCSPs.UNSAT) {
+            Solver solver = new Solver(TestCSPs.problem(name), varOrder, "asc");
+            solver.setAllDifferent(true);
+            SolverResult result = solver.run(algorithm);
+            assertEquals(SolverResult.Status.UNSAT, result.getStatus(), name);
+            assertNull(result.getSolution(), name);
+        }
+    }
+
+    static Stream<Arguments> configurations() {
+        return TestCSPs.configurations();
+    }
+
+    private static ArrayList<Variable> variables(int[][] bounds) {
+        ArrayList<Variable> vars = new ArrayList<Variable>();
+        for (int[] b : bounds) {
+            vars.add(new Variable(vars.size(), new Domain(b[0], b[1])));
+        }
+        return vars;
+    }
+
+    private static List<Integer> edge(int x, int y) {
+        return List.of(Math.min(x, y), Math.max(x, y));
+    }
+}
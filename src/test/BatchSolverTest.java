@@ -0,0 +1,114 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * One JSON line per instance, in any order, with errors reported as records
+ * instead of stopping the batch
+ */
+public class BatchSolverTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void solvesEveryFileOfADirectory() throws IOException {
+        Files.copy(Paths.get("src", "csps", "6Queens.csp"), dir.resolve("a.csp"));
+        Files.writeString(dir.resolve("b.csp"), TestCSPs.generate("3Queens"));
+        Files.writeString(dir.resolve("c.csp"), "-1\n");
+        Files.writeString(dir.resolve("ignored.txt"), "not an instance");
+        Path out = dir.resolve("out").resolve("results.jsonl");
+        Files.createDirectories(out.getParent());
+
+        String err = run(dir.toString(), "mac", "sdf", "asc", "-workers", "2", "-out", out.toString());
+        Map<String, String> lines = byFile(Files.readAllLines(out));
+        assertEquals(3, lines.size(), lines.toString());
+
+        String sat = lines.get("a.csp");
+        assertTrue(sat.contains("\"algorithm\":\"mac\",\"varOrder\":\"sdf\",\"valOrder\":\"asc\""), sat);
+        assertTrue(sat.contains("\"status\":\"SAT\",\"stopped\":null"), sat);
+        int[] solution = Arrays.stream(field(sat, "\"solution\":[", "]").split(",")).mapToInt(Integer::parseInt)
+                .toArray();
+        TestCSPs.assertValid(TestCSPs.problem("6Queens"), solution, "a.csp");
+
+        assertTrue(lines.get("b.csp").contains("\"status\":\"UNSAT\",\"stopped\":null,\"solution\":null"),
+                lines.get("b.csp"));
+        assertTrue(lines.get("c.csp").contains("\"status\":\"ERROR\",\"error\":\"cannot parse file\""),
+                lines.get("c.csp"));
+
+        // The reader details the error, the summary counts the statuses
+        assertTrue(err.contains("negative number of variables -1"), err);
+        assertTrue(err.contains("3 instances in"), err);
+        assertTrue(err.contains("SAT=1 UNSAT=1 UNKNOWN=0 ERROR=1"), err);
+    }
+
+    @Test
+    void readsSettingsFromAManifest() throws IOException {
+        Files.copy(Paths.get("src", "csps", "langfords3_10.csp"), dir.resolve("l.csp"));
+        Files.writeString(dir.resolve("manifest"), "# instances\n\nl.csp\nl.csp fc dom/wdeg desc\nmissing.csp\n");
+        Path out = dir.resolve("results.jsonl");
+
+        run(dir.resolve("manifest").toString(), "mac", "sdf", "asc", "-max-nodes", "1", "-out", out.toString());
+        List<String> lines = Files.readAllLines(out);
+        assertEquals(3, lines.size(), lines.toString());
+        int unknown = 0;
+        for (String line : lines) {
+            if (line.contains("missing.csp")) {
+                assertTrue(line.contains("\"status\":\"ERROR\",\"error\":\"cannot read file\""), line);
+            } else {
+                assertTrue(line.contains("\"status\":\"UNKNOWN\",\"stopped\":\"nodes\""), line);
+                unknown++;
+            }
+        }
+        assertEquals(2, unknown);
+        assertTrue(lines.stream().anyMatch(line -> line.contains("\"algorithm\":\"fc\",\"varOrder\":\"dom/wdeg\","
+                + "\"valOrder\":\"desc\"")), lines.toString());
+    }
+
+    @Test
+    void rejectsBadManifestLines() throws IOException {
+        Files.writeString(dir.resolve("manifest"), "a.csp mac sdf\n");
+        Path out = dir.resolve("results.jsonl");
+        String err = run(dir.resolve("manifest").toString(), "mac", "sdf", "asc", "-out", out.toString());
+        assertTrue(err.contains("manifest:1: expected <file>"), err);
+        assertFalse(Files.exists(out));
+    }
+
+    /**
+     * Run the command line and return what it printed on standard error
+     */
+    private static String run(String... args) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream err = System.err;
+        try (PrintStream ps = new PrintStream(bytes)) {
+            System.setErr(ps);
+            BatchSolver.main(args);
+        } finally {
+            System.setErr(err);
+        }
+        return bytes.toString();
+    }
+
+    /**
+     * JSON lines by the name of their file
+     */
+    private static Map<String, String> byFile(List<String> lines) {
+        Map<String, String> byFile = new HashMap<String, String>();
+        for (String line : lines) {
+            String file = field(line, "\"file\":\"", "\"");
+            assertNull(byFile.put(Paths.get(file).getFileName().toString(), line), "duplicate " + file);
+        }
+        return byFile;
+    }
+
+    private static String field(String line, String prefix, String end) {
+        int start = line.indexOf(prefix);
+        assertTrue(start >= 0, line);
+        start += prefix.length();
+        return line.substring(start, line.indexOf(end, start));
+    }
+}
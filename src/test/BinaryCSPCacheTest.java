@@ -0,0 +1,114 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Cache hits return the parsed problem, edited sources miss, and damaged entries
+ * are reparsed and rewritten
+ */
+public class BinaryCSPCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void storesAndLoadsProblems() throws IOException {
+        BinaryCSPCache cache = new BinaryCSPCache(dir.resolve("cache"));
+        BinaryCSP csp = TestCSPs.problem("FinnishSudoku");
+        assertNull(cache.load("key"));
+        cache.store("key", csp);
+        assertSameProblem(csp, cache.load("key"));
+    }
+
+    @Test
+    void readerHitsTheCache() throws IOException {
+        Path source = copy("6Queens");
+        BinaryCSPCache cache = new BinaryCSPCache(dir.resolve("cache"));
+        BinaryCSPReader reader = new BinaryCSPReader();
+        reader.setCache(cache);
+        String key = BinaryCSPCache.contentKey(source);
+
+        // Miss: parsed and stored
+        BinaryCSP parsed = reader.readBinaryCSP(source.toString());
+        assertSameProblem(TestCSPs.problem("6Queens"), parsed);
+        assertSameProblem(parsed, cache.load(key));
+
+        // Hit: the entry is returned without parsing, whatever it holds
+        BinaryCSP other = TestCSPs.problem("4Queens");
+        cache.store(key, other);
+        assertSameProblem(other, reader.readBinaryCSP(source.toString()));
+    }
+
+    @Test
+    void editedSourcesMiss() throws IOException {
+        Path source = copy("6Queens");
+        BinaryCSPCache cache = new BinaryCSPCache(dir.resolve("cache"));
+        BinaryCSPReader reader = new BinaryCSPReader();
+        reader.setCache(cache);
+        String key = BinaryCSPCache.contentKey(source);
+        reader.readBinaryCSP(source.toString());
+
+        Files.copy(Paths.get("src", "csps", "8Queens.csp"), source, StandardCopyOption.REPLACE_EXISTING);
+        assertNotEquals(key, BinaryCSPCache.contentKey(source));
+        assertSameProblem(TestCSPs.problem("8Queens"), reader.readBinaryCSP(source.toString()));
+        assertSameProblem(TestCSPs.problem("6Queens"), cache.load(key));
+    }
+
+    @Test
+    void damagedEntriesMiss() throws IOException {
+        Path source = copy("6Queens");
+        Path directory = dir.resolve("cache");
+        BinaryCSPCache cache = new BinaryCSPCache(directory);
+        String key = BinaryCSPCache.contentKey(source);
+        Path entry = directory.resolve(key + ".bcsp");
+        cache.store(key, TestCSPs.problem("6Queens"));
+        byte[] bytes = Files.readAllBytes(entry);
+
+        // Truncated in the middle of the tuples
+        Files.write(entry, Arrays.copyOf(bytes, bytes.length / 2));
+        assertNull(cache.load(key));
+
+        // A count larger than what follows
+        ByteBuffer.wrap(bytes).order(ByteOrder.nativeOrder()).putInt(8, Integer.MAX_VALUE);
+        Files.write(entry, bytes);
+        assertNull(cache.load(key));
+
+        // Not an entry at all
+        Files.writeString(entry, "6\n0, 5\n");
+        assertNull(cache.load(key));
+
+        // The reader parses the source again and replaces the entry
+        BinaryCSPReader reader = new BinaryCSPReader();
+        reader.setCache(cache);
+        assertSameProblem(TestCSPs.problem("6Queens"), reader.readBinaryCSP(source.toString()));
+        assertSameProblem(TestCSPs.problem("6Queens"), cache.load(key));
+    }
+
+    private Path copy(String name) throws IOException {
+        Path source = dir.resolve(name + ".csp");
+        Files.copy(Paths.get("src", "csps", name + ".csp"), source);
+        return source;
+    }
+
+    private static void assertSameProblem(BinaryCSP expected, BinaryCSP actual) {
+        assertNotNull(actual);
+        assertArrayEquals(expected.getDomainBounds(), actual.getDomainBounds());
+        assertEquals(expected.getConstraints().size(), actual.getConstraints().size());
+        for (int c = 0; c < expected.getConstraints().size(); c++) {
+            BinaryConstraint e = expected.getConstraints().get(c);
+            BinaryConstraint a = actual.getConstraints().get(c);
+            assertEquals(e.getFirstVar(), a.getFirstVar());
+            assertEquals(e.getSecondVar(), a.getSecondVar());
+            assertEquals(e.getNoTuples(), a.getNoTuples());
+            assertArrayEquals(Arrays.copyOf(e.getFirstValues(), e.getNoTuples()),
+                    Arrays.copyOf(a.getFirstValues(), a.getNoTuples()));
+            assertArrayEquals(Arrays.copyOf(e.getSecondValues(), e.getNoTuples()),
+                    Arrays.copyOf(a.getSecondValues(), a.getNoTuples()));
+        }
+    }
+}
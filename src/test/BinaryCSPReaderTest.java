@@ -0,0 +1,80 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.*;
+
+/**
+ * Parsing the memory-mapped files, and rejecting malformed ones with the offset
+ * of the error instead of an exception
+ */
+public class BinaryCSPReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsVariablesAndConstraints() {
+        BinaryCSP csp = new BinaryCSPReader().readBinaryCSP("src/csps/4Queens.csp");
+        assertEquals(4, csp.getNoVariables());
+        assertEquals(6, csp.getConstraints().size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0, csp.getLB(i));
+            assertEquals(3, csp.getUB(i));
+        }
+        BinaryConstraint first = csp.getConstraints().get(0);
+        assertEquals(0, first.getFirstVar());
+        assertEquals(1, first.getSecondVar());
+        assertEquals(6, first.getNoTuples());
+    }
+
+    @Test
+    void skipsCommentsAndSeparators() throws IOException {
+        BinaryCSP csp = TestCSPs.parse("// two variables\n2\n-5, 5 // x0\n(0,1)\nc(1, 0)\n-5, 0\n5, 1\n");
+        assertEquals(2, csp.getNoVariables());
+        assertEquals(-5, csp.getLB(0));
+        assertEquals(1, csp.getUB(1));
+        BinaryConstraint c = csp.getConstraints().get(0);
+        assertEquals(1, c.getFirstVar());
+        assertArrayEquals(new int[] { -5, 5 }, Arrays.copyOf(c.getFirstValues(), c.getNoTuples()));
+        assertArrayEquals(new int[] { 0, 1 }, Arrays.copyOf(c.getSecondValues(), c.getNoTuples()));
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "''                              | expected the number of variables at offset 0",
+            "-2\\n0, 1\\n                    | negative number of variables -2 at offset 0",
+            "1000000\\n0, 1\\n               | 1000000 variables do not fit in the file at offset 0",
+            "2\\n0, 1\\n0\\n                 | expected the upper bound of variable 1 at offset 9",
+            "2\\n0, 1\\n0, 1\\nc(0, 2)\\n0, 0 | variable 2 out of range 0..1 at offset 17",
+            "2\\n0, 1\\n0, 1\\nc(-1, 1)\\n    | variable -1 out of range 0..1 at offset 14",
+            "2\\n0, 1\\n0, 1\\nc(0, 1)\\n0, 0\\n1 | expected the second value of a tuple at offset 26" })
+    void reportsMalformedFiles(String text, String message) throws IOException {
+        Path file = dir.resolve("bad.csp");
+        Files.writeString(file, text.replace("\\n", "\n"));
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream stderr = System.err;
+        try (PrintStream ps = new PrintStream(err)) {
+            System.setErr(ps);
+            assertNull(new BinaryCSPReader().readBinaryCSP(file.toString()));
+        } finally {
+            System.setErr(stderr);
+        }
+        assertEquals("java.io.IOException: " + file + ": " + message, err.toString().strip());
+    }
+
+    @Test
+    void reportsMissingFiles() {
+        PrintStream stderr = System.err;
+        try (PrintStream ps = new PrintStream(OutputStream.nullOutputStream())) {
+            System.setErr(ps);
+            assertNull(new BinaryCSPReader().readBinaryCSP(dir.resolve("missing.csp").toString()));
+        } finally {
+            System.setErr(stderr);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.*;
+import java.util.stream.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.*;
+
+/**
+ * A search stopped by a budget or by cancel ends as UNKNOWN with the reason,
+ * unless it has already found a solution
+ */
+public class BudgetTest {
+
+    // Unsatisfiable, and takes minutes with fc and the asc orderings
+    private static final String HARD = "langfords3_11";
+
+    static Stream<String> algorithms() {
+        return Solver.ALGORITHMS.stream();
+    }
+
+    @ParameterizedTest
+    @MethodSource("algorithms")
+    void stopsAtNodeLimit(String algorithm) {
+        Solver solver = new Solver(TestCSPs.problem(HARD), "asc", "asc");
+        solver.setNodeLimit(100);
+        SolverResult result = solver.run(algorithm);
+        assertUnknown(result, "nodes");
+        // Checked once per step, and a step may take a few right branches
+        assertTrue(result.getSearchNodes() >= 100 && result.getSearchNodes() < 110, "" + result.getSearchNodes());
+    }
+
+    @ParameterizedTest
+    @MethodSource("algorithms")
+    void stopsAtRevisionLimit(String algorithm) {
+        Solver solver = new Solver(TestCSPs.problem(HARD), "asc", "asc");
+        solver.setRevisionLimit(5000);
+        SolverResult result = solver.run(algorithm);
+        assertUnknown(result, "revisions");
+        assertTrue(result.getArcRevisions() >= 5000);
+    }
+
+    @ParameterizedTest
+    @MethodSource("algorithms")
+    void stopsAtTimeLimit(String algorithm) {
+        Solver solver = new Solver(TestCSPs.problem(HARD), "asc", "asc");
+        solver.setTimeLimit(200);
+        SolverResult result = solver.run(algorithm);
+        assertUnknown(result, "time");
+        assertTrue(result.getElapsedNanos() >= 200_000_000L);
+        assertTrue(result.getElapsedNanos() < 10_000_000_000L, "" + result.getElapsedNanos());
+    }
+
+    @Test
+    void stopsWhenCancelledFromAnotherThread() throws Exception {
+        Solver solver = new Solver(TestCSPs.problem(HARD), "asc", "asc");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<SolverResult> run = executor.submit(() -> solver.run("fc"));
+            Thread.sleep(200);
+            assertFalse(run.isDone());
+            solver.cancel();
+            solver.cancel();
+            SolverResult result = run.get(10, TimeUnit.SECONDS);
+            assertUnknown(result, "cancelled");
+            assertTrue(solver.isCancelled());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void keepsTheFirstReason() {
+        Solver solver = new Solver(TestCSPs.problem(HARD), "asc", "asc");
+        solver.setNodeLimit(50);
+        SolverResult result = solver.run("mac");
+        solver.cancel();
+        assertUnknown(result, "nodes");
+        assertEquals("nodes", solver.getResult().getStopReason());
+    }
+
+    @Test
+    void largeBudgetsDoNotChangeTheAnswer() {
+        BinaryCSP csp = TestCSPs.problem("langfords3_10");
+        Solver solver = new Solver(csp, "dom/wdeg", "asc");
+        solver.setNodeLimit(1_000_000_000L);
+        solver.setRevisionLimit(Long.MAX_VALUE);
+        solver.setTimeLimit(600_000);
+        SolverResult result = solver.run("mac");
+        assertEquals(SolverResult.Status.SAT, result.getStatus());
+        assertNull(result.getStopReason());
+        TestCSPs.assertValid(csp, result.getSolution(), "langfords3_10");
+
+        Solver unsat = new Solver(TestCSPs.problem("langfords3_7"), "dom/wdeg", "asc");
+        unsat.setNodeLimit(1_000_000_000L);
+        assertEquals(SolverResult.Status.UNSAT, unsat.run("mac").getStatus());
+    }
+
+    @Test
+    void stoppedEnumerationsKeepTheirSolutions() {
+        BinaryCSP csp = TestCSPs.problem("10Queens");
+        TestCSPs.Solutions solutions = new TestCSPs.Solutions(csp);
+        Solver solver = new Solver(csp, "sdf", "asc");
+        solver.setAllSolutions(true);
+        solver.setSolutionSink(solutions);
+        solver.setNodeLimit(2000);
+        SolverResult result = solver.run("mac");
+        assertEquals(SolverResult.Status.SAT, result.getStatus());
+        assertEquals("nodes", result.getStopReason());
+        assertTrue(solutions.size() > 0 && solutions.size() < 724, "" + solutions.size());
+        assertEquals(solutions.size(), result.getSolutionCount());
+    }
+
+    private static void assertUnknown(SolverResult result, String reason) {
+        assertEquals(SolverResult.Status.UNKNOWN, result.getStatus());
+        assertEquals(reason, result.getStopReason());
+        assertNull(result.getSolution());
+    }
+}
@@ -0,0 +1,130 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The heap top is always the variable a linear sdf scan would select, through
+ * prunings, restores, assignments and rank changes
+ */
+public class DomainHeapTest {
+
+    private static final int VARIABLES = 40;
+    private static final int STEPS = 20000;
+
+    @Test
+    void peekMatchesLinearScan() {
+        for (long seed = 1; seed <= 5; seed++) {
+            Random random = new Random(seed);
+            ArrayList<Variable> vars = new ArrayList<Variable>();
+            for (int i = 0; i < VARIABLES; i++) {
+                int lb = random.nextInt(5) - 2;
+                vars.add(new Variable(i, new Domain(lb, lb + random.nextInt(12))));
+            }
+            int[] rank = new int[VARIABLES];
+            for (int i = 0; i < VARIABLES; i++) {
+                rank[i] = i;
+            }
+            DomainHeap heap = new DomainHeap(vars, rank);
+            Trail trail = new Trail(vars);
+            trail.setListener(heap);
+            for (Variable v : vars) {
+                heap.insert(v.getId());
+            }
+
+            int levels = 0;
+            for (int step = 0; step < STEPS; step++) {
+                int var = random.nextInt(VARIABLES);
+                Domain domain = vars.get(var).getDomain();
+                switch (random.nextInt(6)) {
+                    case 0:
+                    case 1:
+                        // Prune a value, keeping the domain non-empty
+                        if (domain.size() > 1) {
+                            int[] values = domain.toArray();
+                            int val = values[random.nextInt(values.length)];
+                            domain.remove(val);
+                            trail.push(var, val);
+                        }
+                        break;
+                    case 2:
+                        trail.newLevel();
+                        levels++;
+                        break;
+                    case 3:
+                        // Restores every value pruned since the level opened
+                        if (levels > 0) {
+                            trail.backtrack();
+                            levels--;
+                        }
+                        break;
+                    case 4:
+                        // Assigned variables leave the heap and come back on backtrack
+                        if (heap.contains(var)) {
+                            heap.remove(var);
+                        } else {
+                            heap.insert(var);
+                        }
+                        break;
+                    default:
+                        // Random tie ranks are redrawn at restarts
+                        if (random.nextInt(50) == 0) {
+                            shuffle(rank, random);
+                            heap.rebuild();
+                        }
+                }
+                assertEquals(scan(vars, rank, heap), heap.isEmpty() ? -1 : heap.peek(),
+                        "seed " + seed + " step " + step);
+            }
+        }
+    }
+
+    @Test
+    void emptiesAndRefills() {
+        ArrayList<Variable> vars = new ArrayList<Variable>();
+        for (int i = 0; i < 5; i++) {
+            vars.add(new Variable(i, new Domain(0, 4 - i)));
+        }
+        DomainHeap heap = new DomainHeap(vars, new int[] { 0, 1, 2, 3, 4 });
+        assertTrue(heap.isEmpty());
+        for (int i = 0; i < 5; i++) {
+            heap.insert(i);
+            heap.insert(i);
+        }
+        assertEquals(5, heap.size());
+        for (int expected = 4; expected >= 0; expected--) {
+            assertEquals(expected, heap.peek());
+            heap.remove(heap.peek());
+        }
+        assertTrue(heap.isEmpty());
+        heap.insert(2);
+        heap.insert(1);
+        heap.clear();
+        assertTrue(heap.isEmpty());
+        assertFalse(heap.contains(2));
+    }
+
+    /**
+     * Smallest domain among the variables in the heap, ties to the smaller rank
+     */
+    private static int scan(List<Variable> vars, int[] rank, DomainHeap heap) {
+        int selected = -1;
+        for (Variable v : vars) {
+            int var = v.getId();
+            if (heap.contains(var) && (selected < 0 || v.getDomainSize() < vars.get(selected).getDomainSize()
+                    || (v.getDomainSize() == vars.get(selected).getDomainSize() && rank[var] < rank[selected]))) {
+                selected = var;
+            }
+        }
+        return selected;
+    }
+
+    private static void shuffle(int[] rank, Random random) {
+        for (int i = rank.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = rank[i];
+            rank[i] = rank[j];
+            rank[j] = t;
+        }
+    }
+}
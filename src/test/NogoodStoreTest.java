@@ -0,0 +1,126 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.stream.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.*;
+
+/**
+ * Watched-literal propagation and eviction of the nogood store, and the answers
+ * of every algorithm when it records nogoods
+ */
+public class NogoodStoreTest {
+
+    private static final int NOGOOD_CAPACITY = 100000;
+
+    static Stream<Arguments> configurations() {
+        return TestCSPs.configurations();
+    }
+
+    @Test
+    void prunesTheLastLiteral() {
+        ArrayList<Variable> vars = variables(3, 0, 2);
+        Trail trail = new Trail(vars);
+        PropagationQueue queue = new PropagationQueue(3);
+        NogoodStore store = new NogoodStore(vars, 100);
+        store.add(new int[] { 0, 0, 1, 0, 2, 0 });
+
+        vars.get(0).assign(0, trail);
+        assertTrue(store.propagate(0, trail, queue));
+        assertEquals(3, vars.get(2).getDomainSize());
+
+        vars.get(1).assign(0, trail);
+        assertTrue(store.propagate(1, trail, queue));
+        assertFalse(vars.get(2).getDomain().contains(0));
+        assertEquals(2, vars.get(2).getDomainSize());
+        assertTrue(queue.contains(2));
+        assertEquals(1, store.getPrunings());
+    }
+
+    @Test
+    void failsWhenEveryLiteralIsTrue() {
+        ArrayList<Variable> vars = variables(2, 0, 1);
+        Trail trail = new Trail(vars);
+        NogoodStore store = new NogoodStore(vars, 100);
+        store.add(new int[] { 0, 1, 1, 1 });
+        vars.get(0).assign(1, trail);
+        vars.get(1).assign(1, trail);
+        assertFalse(store.propagate(1, trail, null));
+    }
+
+    @Test
+    void evictsWhenFull() {
+        ArrayList<Variable> vars = variables(10, 0, 9);
+        NogoodStore store = new NogoodStore(vars, 20);
+        for (int i = 0; i < 100; i++) {
+            store.add(new int[] { i % 10, i / 10, (i + 1) % 10, i % 7 });
+        }
+        assertEquals(100, store.getRecorded());
+        assertTrue(store.getEvicted() > 0);
+        assertTrue(store.size() * 2 <= 20);
+        assertEquals(100, store.size() + store.getEvicted());
+
+        // Longer than half the capacity, not stored at all
+        int[] lits = new int[22];
+        for (int i = 0; i < 11; i++) {
+            lits[2 * i] = i % 10;
+        }
+        store.add(lits);
+        assertEquals(100, store.getRecorded());
+    }
+
+    @ParameterizedTest
+    @MethodSource("configurations")
+    void findsSolutions(String algorithm, String varOrder) {
+        // Nogoods are only recorded when looking for the first solution
+        for (String name : TestCSPs.COUNTS.keySet()) {
+            BinaryCSP csp = TestCSPs.problem(name);
+            Solver solver = new Solver(csp, varOrder, "asc");
+            solver.setNogoods(NOGOOD_CAPACITY);
+            SolverResult result = solver.run(algorithm);
+            assertEquals(SolverResult.Status.SAT, result.getStatus(), name);
+            TestCSPs.assertValid(csp, result.getSolution(), name);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("configurations")
+    void provesUnsatisfiability(String algorithm, String varOrder) {
+        for (String name : TestCSPs.UNSAT) {
+            Solver solver = new Solver(TestCSPs.problem(name), varOrder, "asc");
+            solver.setNogoods(NOGOOD_CAPACITY);
+            SolverResult result = solver.run(algorithm);
+            assertEquals(SolverResult.Status.UNSAT, result.getStatus(), name);
+            assertNull(result.getSolution(), name);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("configurations")
+    void staysCorrectWhenEvictingAcrossRestarts(String algorithm, String varOrder) {
+        // A store too small for the search keeps evicting, restarts keep the nogoods
+        for (String name : new String[] { "langfords3_7", "10Queens" }) {
+            BinaryCSP csp = TestCSPs.problem(name);
+            Solver solver = new Solver(csp, varOrder, "asc");
+            solver.setNogoods(50);
+            solver.setRestarts("luby", 10, 1.5);
+            SolverResult result = solver.run(algorithm);
+            if (name.equals("langfords3_7")) {
+                assertTrue(solver.getNogoods().getEvicted() > 0, name);
+                assertEquals(SolverResult.Status.UNSAT, result.getStatus(), name);
+            } else {
+                assertEquals(SolverResult.Status.SAT, result.getStatus(), name);
+                TestCSPs.assertValid(csp, result.getSolution(), name);
+            }
+        }
+    }
+
+    private static ArrayList<Variable> variables(int n, int lb, int ub) {
+        ArrayList<Variable> vars = new ArrayList<Variable>();
+        for (int i = 0; i < n; i++) {
+            vars.add(new Variable(i, new Domain(lb, ub)));
+        }
+        return vars;
+    }
+}
@@ -0,0 +1,89 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.stream.*;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.*;
+
+/**
+ * Splitting the search over workers finds the same solutions, each once, and
+ * proves the same instances unsatisfiable as a single solver
+ */
+public class ParallelSearchTest {
+
+    private static final int THREADS = 4;
+
+    static Stream<Arguments> configurations() {
+        return TestCSPs.configurations();
+    }
+
+    static Stream<Arguments> slowConfigurations() {
+        return TestCSPs.slowConfigurations();
+    }
+
+    @ParameterizedTest
+    @MethodSource("configurations")
+    void countsSolutions(String algorithm, String varOrder) {
+        for (Map.Entry<String, Long> e : TestCSPs.COUNTS.entrySet()) {
+            if (!TestCSPs.slow(e.getKey(), algorithm, varOrder)) {
+                assertEquals(e.getValue(), enumerate(e.getKey(), algorithm, varOrder), e.getKey());
+            }
+        }
+    }
+
+    @Tag("slow")
+    @ParameterizedTest
+    @MethodSource("slowConfigurations")
+    void countsLangfordSolutionsWithWeightedDegree(String algorithm, String varOrder) {
+        assertEquals(TestCSPs.COUNTS.get("langfords3_9"), enumerate("langfords3_9", algorithm, varOrder));
+    }
+
+    @ParameterizedTest
+    @MethodSource("configurations")
+    void provesUnsatisfiability(String algorithm, String varOrder) {
+        for (String name : TestCSPs.UNSAT) {
+            ParallelSearch search = new ParallelSearch(TestCSPs.problem(name), algorithm, varOrder, "asc", false,
+                    THREADS);
+            assertFalse(search.run(), name);
+            assertEquals(SolverResult.Status.UNSAT, search.getResult().getStatus(), name);
+            assertNull(search.getFirstSolution(), name);
+        }
+    }
+
+    @Test
+    void findsFirstSolution() {
+        BinaryCSP csp = TestCSPs.problem("10Queens");
+        ParallelSearch search = new ParallelSearch(csp, "mac", "dom/wdeg", "asc", false, THREADS);
+        assertTrue(search.run());
+        assertEquals(SolverResult.Status.SAT, search.getResult().getStatus());
+        TestCSPs.assertValid(csp, search.getFirstSolution(), "10Queens");
+    }
+
+    @Test
+    void stopsAtSolutionLimit() {
+        BinaryCSP csp = TestCSPs.problem("10Queens");
+        TestCSPs.Solutions solutions = new TestCSPs.Solutions(csp);
+        ParallelSearch search = new ParallelSearch(csp, "mac", "sdf", "asc", true, THREADS);
+        search.setMaxSolutions(10);
+        search.setSolutionSink(solutions);
+        assertTrue(search.run());
+        assertEquals(10, search.getSolutionCount());
+        assertEquals(10, solutions.size());
+    }
+
+    /**
+     * Number of solutions found by a parallel enumeration, each checked and distinct
+     */
+    private static long enumerate(String name, String algorithm, String varOrder) {
+        BinaryCSP csp = TestCSPs.problem(name);
+        TestCSPs.Solutions solutions = new TestCSPs.Solutions(csp);
+        ParallelSearch search = new ParallelSearch(csp, algorithm, varOrder, "asc", true, THREADS);
+        search.setSolutionSink(solutions);
+        assertTrue(search.run(), name);
+        assertEquals(SolverResult.Status.SAT, search.getResult().getStatus(), name);
+        assertEquals(solutions.size(), search.getSolutionCount(), name);
+        return solutions.size();
+    }
+}
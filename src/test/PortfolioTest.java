@@ -0,0 +1,94 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The portfolio answers like a single solver, whichever configuration wins
+ */
+public class PortfolioTest {
+
+    private static final int THREADS = 4;
+
+    @Test
+    void defaultConfigsCoverEveryCombination() {
+        Portfolio portfolio = new Portfolio(TestCSPs.problem("6Queens"));
+        portfolio.addDefaultConfigs();
+        assertEquals(Solver.ALGORITHMS.size() * Solver.VAR_ORDERS.size() * Solver.VAL_ORDERS.size(),
+                portfolio.getNoConfigs());
+    }
+
+    @Test
+    void findsValidSolutions() throws InterruptedException {
+        for (String name : new String[] { "8Queens", "langfords3_9", "FinnishSudoku" }) {
+            BinaryCSP csp = TestCSPs.problem(name);
+            Portfolio portfolio = new Portfolio(csp);
+            portfolio.addDefaultConfigs();
+            Solver winner = portfolio.run(THREADS);
+            assertNotNull(winner, name);
+            assertEquals(SolverResult.Status.SAT, winner.getResult().getStatus(), name);
+            TestCSPs.assertValid(csp, winner.getResult().getSolution(), name);
+        }
+    }
+
+    @Test
+    void provesUnsatisfiability() throws InterruptedException {
+        for (String name : new String[] { "3Queens", "langfords2_5" }) {
+            Portfolio portfolio = new Portfolio(TestCSPs.problem(name));
+            portfolio.addDefaultConfigs();
+            portfolio.setAllDifferent(true);
+            Solver winner = portfolio.run(THREADS);
+            assertNotNull(winner, name);
+            assertEquals(SolverResult.Status.UNSAT, winner.getResult().getStatus(), name);
+            assertNull(winner.getResult().getSolution(), name);
+        }
+    }
+
+    @Test
+    void skipsFailingConfigs() throws InterruptedException {
+        BinaryCSP csp = TestCSPs.problem("6Queens");
+        Portfolio portfolio = new Portfolio(csp);
+        portfolio.addConfig("unknown", "sdf", "asc");
+        portfolio.addConfig("mac", "dom/wdeg", "random", 7, true);
+        Solver winner = suppressErr(() -> portfolio.run(1));
+        assertNotNull(winner);
+        TestCSPs.assertValid(csp, winner.getResult().getSolution(), "6Queens");
+    }
+
+    @Test
+    void reportsFailuresOnStandardError() throws InterruptedException {
+        Portfolio portfolio = new Portfolio(TestCSPs.problem("6Queens"));
+        portfolio.addConfig("unknown", "sdf", "asc");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        try (PrintStream o = new PrintStream(out); PrintStream e = new PrintStream(err)) {
+            System.setOut(o);
+            System.setErr(e);
+            assertNull(portfolio.run(THREADS));
+        } finally {
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+        assertEquals("", out.toString());
+        assertTrue(err.toString().contains("Unknown algorithm: unknown"), err.toString());
+    }
+
+    private interface Run {
+        Solver call() throws InterruptedException;
+    }
+
+    /**
+     * Run without printing the failures reported on standard error
+     */
+    private static Solver suppressErr(Run run) throws InterruptedException {
+        PrintStream err = System.err;
+        try (PrintStream ps = new PrintStream(OutputStream.nullOutputStream())) {
+            System.setErr(ps);
+            return run.call();
+        } finally {
+            System.setErr(err);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.stream.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.*;
+
+/**
+ * Restarting keeps the search complete, and random tie-breaking is reproducible
+ * from the seed
+ */
+public class RestartTest {
+
+    static Stream<Arguments> configurations() {
+        return Solver.ALGORITHMS.stream().flatMap(algorithm -> Stream.of("luby", "geometric").flatMap(
+                policy -> Stream.of(Arguments.of(algorithm, policy, false), Arguments.of(algorithm, policy, true))));
+    }
+
+    @ParameterizedTest
+    @MethodSource("configurations")
+    void findsValidSolutions(String algorithm, String policy, boolean randomTies) {
+        for (String name : new String[] { "10Queens", "langfords3_10", "SimonisSudoku" }) {
+            BinaryCSP csp = TestCSPs.problem(name);
+            SolverResult result = solve(csp, algorithm, "dom/wdeg", policy, randomTies, 7);
+            assertEquals(SolverResult.Status.SAT, result.getStatus(), name);
+            TestCSPs.assertValid(csp, result.getSolution(), name);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("configurations")
+    void provesUnsatisfiability(String algorithm, String policy, boolean randomTies) {
+        for (String name : TestCSPs.UNSAT) {
+            SolverResult result = solve(TestCSPs.problem(name), algorithm, "dom/wdeg", policy, randomTies, 7);
+            assertEquals(SolverResult.Status.UNSAT, result.getStatus(), name);
+        }
+    }
+
+    @Test
+    void restartsWithSmallCutoffs() {
+        // One failure per restart at first, so the cutoffs have to grow for the proof to finish
+        for (String policy : new String[] { "luby", "geometric" }) {
+            Solver solver = new Solver(TestCSPs.problem("langfords3_7"), "dom/wdeg", "asc");
+            solver.setRestarts(policy, 1, 1.1);
+            assertEquals(SolverResult.Status.UNSAT, solver.run("mac").getStatus(), policy);
+            assertTrue(solver.getRestarts() > 0, policy);
+        }
+    }
+
+    @Test
+    void rejectsFactorsThatDoNotGrow() {
+        Solver solver = new Solver(TestCSPs.problem("6Queens"), "sdf", "asc");
+        for (double factor : new double[] { 1, 0.5, 0, -2, Double.NaN }) {
+            assertThrows(IllegalArgumentException.class, () -> solver.setRestarts("geometric", 1, factor),
+                    "factor " + factor);
+        }
+    }
+
+    @Test
+    void commandLineRejectsFactorsThatDoNotGrow() {
+        for (String factor : new String[] { "1", "1.0", "0.5" }) {
+            String out = runMain("src/csps/6Queens.csp", "mac", "asc", "asc", "-restarts", "geometric",
+                    "-restart-base", "1", "-restart-factor", factor);
+            assertEquals("-restart-factor must be greater than 1", out.strip(), factor);
+        }
+        String out = runMain("src/csps/langfords2_4.csp", "mac", "asc", "asc", "-restarts", "geometric",
+                "-restart-base", "1", "-restart-factor", "1.01");
+        assertTrue(out.contains("status=SAT"), out);
+    }
+
+    @Test
+    void randomTiesAreReproducibleFromTheSeed() {
+        BinaryCSP csp = TestCSPs.problem("langfords3_10");
+        Set<Long> nodes = new HashSet<Long>();
+        for (long seed = 1; seed <= 6; seed++) {
+            SolverResult first = solve(csp, "mac", "dom/wdeg", "luby", true, seed);
+            SolverResult again = solve(csp, "mac", "dom/wdeg", "luby", true, seed);
+            assertArrayEquals(first.getSolution(), again.getSolution(), "seed " + seed);
+            assertEquals(first.getSearchNodes(), again.getSearchNodes(), "seed " + seed);
+            nodes.add(first.getSearchNodes());
+        }
+        assertTrue(nodes.size() > 1, "every seed searched the same tree");
+    }
+
+    private static SolverResult solve(BinaryCSP csp, String algorithm, String varOrder, String policy,
+            boolean randomTies, long seed) {
+        Solver solver = new Solver(csp, varOrder, "asc");
+        solver.setRestarts(policy, 10, 1.5);
+        solver.setRandomTies(randomTies);
+        solver.setSeed(seed);
+        return solver.run(algorithm);
+    }
+
+    /**
+     * Standard output of the command line
+     */
+    private static String runMain(String... args) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        try (PrintStream ps = new PrintStream(bytes)) {
+            System.setOut(ps);
+            BinaryCSPReader.main(args);
+        } finally {
+            System.setOut(out);
+        }
+        return bytes.toString();
+    }
+}
@@ -0,0 +1,47 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Solutions are written one per line, and write errors stay off the solution stream
+ */
+public class SolutionWriterTest {
+
+    @Test
+    void writesOneLinePerSolution() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SolutionWriter writer = new SolutionWriter(bytes)) {
+            assertTrue(writer.accept(new int[] { 1, -2, 3 }));
+            assertTrue(writer.accept(new int[] { 0 }));
+        }
+        assertEquals("1 -2 3\n0\n", bytes.toString());
+    }
+
+    @Test
+    void reportsWriteErrorsOnStandardError() throws IOException {
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream stderr = System.err;
+        try (PrintStream ps = new PrintStream(err); SolutionWriter writer = new SolutionWriter(broken)) {
+            System.setErr(ps);
+            // Fill the buffer so that the next solution reaches the stream
+            int[] values = new int[1 << 15];
+            boolean accepted = true;
+            for (int i = 0; i < 4 && accepted; i++) {
+                accepted = writer.accept(values);
+            }
+            assertFalse(accepted);
+        } catch (IOException e) {
+            // The close flushes the unwritten solutions again
+        } finally {
+            System.setErr(stderr);
+        }
+        assertTrue(err.toString().contains("disk full"), err.toString());
+    }
+}
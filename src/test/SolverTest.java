@@ -0,0 +1,68 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.stream.*;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.*;
+
+/**
+ * Solution counts and unsatisfiability proofs for every algorithm and variable
+ * ordering. Every solution found is checked against the constraints. Counting the
+ * Langford solutions with fc and the wdeg ordering takes minutes, so it is tagged
+ * slow and only runs with mvn test -DexcludedGroups= -Dgroups=slow
+ */
+public class SolverTest {
+
+    static Stream<Arguments> configurations() {
+        return TestCSPs.configurations();
+    }
+
+    static Stream<Arguments> slowConfigurations() {
+        return TestCSPs.slowConfigurations();
+    }
+
+    @ParameterizedTest
+    @MethodSource("configurations")
+    void countsSolutions(String algorithm, String varOrder) {
+        for (Map.Entry<String, Long> e : TestCSPs.COUNTS.entrySet()) {
+            if (!TestCSPs.slow(e.getKey(), algorithm, varOrder)) {
+                assertEquals(e.getValue(), enumerate(e.getKey(), algorithm, varOrder), e.getKey());
+            }
+        }
+    }
+
+    @Tag("slow")
+    @ParameterizedTest
+    @MethodSource("slowConfigurations")
+    void countsLangfordSolutionsWithWeightedDegree(String algorithm, String varOrder) {
+        assertEquals(TestCSPs.COUNTS.get("langfords3_9"), enumerate("langfords3_9", algorithm, varOrder));
+    }
+
+    @ParameterizedTest
+    @MethodSource("configurations")
+    void provesUnsatisfiability(String algorithm, String varOrder) {
+        for (String name : TestCSPs.UNSAT) {
+            BinaryCSP csp = TestCSPs.problem(name);
+            Solver solver = new Solver(csp, varOrder, "asc");
+            SolverResult result = solver.run(algorithm);
+            assertEquals(SolverResult.Status.UNSAT, result.getStatus(), name);
+            assertNull(result.getSolution(), name);
+        }
+    }
+
+    /**
+     * Number of solutions found by a sequential enumeration, each checked and distinct
+     */
+    private static long enumerate(String name, String algorithm, String varOrder) {
+        BinaryCSP csp = TestCSPs.problem(name);
+        TestCSPs.Solutions solutions = new TestCSPs.Solutions(csp);
+        Solver solver = new Solver(csp, varOrder, "asc");
+        solver.setAllSolutions(true);
+        solver.setSolutionSink(solutions);
+        SolverResult result = solver.run(algorithm);
+        assertEquals(SolverResult.Status.SAT, result.getStatus(), name);
+        assertEquals(solutions.size(), solver.getSolutionCount(), name);
+        return solutions.size();
+    }
+}
@@ -0,0 +1,143 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+import org.junit.jupiter.params.provider.Arguments;
+
+/**
+ * Instances and solution checks shared by the tests
+ */
+final class TestCSPs {
+
+    // Instances with their number of solutions, and instances without any
+    static final Map<String, Long> COUNTS = Map.of("6Queens", 4L, "8Queens", 92L, "10Queens", 724L,
+            "langfords3_9", 6L);
+    static final List<String> UNSAT = List.of("3Queens", "langfords2_5", "langfords3_7");
+
+    private static final Map<String, BinaryCSP> problems = new HashMap<String, BinaryCSP>();
+
+    private TestCSPs() {
+    }
+
+    /**
+     * Every algorithm and variable ordering
+     */
+    static Stream<Arguments> configurations() {
+        return Solver.ALGORITHMS.stream()
+                .flatMap(algorithm -> Solver.VAR_ORDERS.stream().map(varOrder -> Arguments.of(algorithm, varOrder)));
+    }
+
+    /**
+     * Counting the Langford solutions with fc and the wdeg ordering takes minutes
+     */
+    static boolean slow(String name, String algorithm, String varOrder) {
+        return name.equals("langfords3_9") && algorithm.startsWith("fc") && varOrder.equals("wdeg");
+    }
+
+    static Stream<Arguments> slowConfigurations() {
+        return Stream.of(Arguments.of("fc", "wdeg"), Arguments.of("fc-cbj", "wdeg"));
+    }
+
+    /**
+     * Instance from src/csps, or generated when it is not there, e.g. 3Queens or
+     * langfords2_5. Problems are read-only and shared between the tests
+     */
+    static synchronized BinaryCSP problem(String name) {
+        return problems.computeIfAbsent(name, key -> {
+            Path file = Paths.get("src", "csps", key + ".csp");
+            if (Files.exists(file)) {
+                return new BinaryCSPReader().readBinaryCSP(file.toString());
+            }
+            try {
+                return parse(generate(key));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Problem written in the .csp format
+     */
+    static BinaryCSP parse(String text) throws IOException {
+        Path file = Files.createTempFile("test", ".csp");
+        try {
+            Files.writeString(file, text);
+            return new BinaryCSPReader().readBinaryCSP(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * What the Queens or Langford generator prints for the instance name
+     */
+    static String generate(String name) {
+        String[] args = name.startsWith("langfords") ? name.substring("langfords".length()).split("_")
+                : new String[] { name.substring(0, name.indexOf("Queens")) };
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        try (PrintStream ps = new PrintStream(bytes)) {
+            System.setOut(ps);
+            if (args.length == 2) {
+                LangfordsGenerator.main(args);
+            } else {
+                QueensGenerator.main(args);
+            }
+        } finally {
+            System.setOut(out);
+        }
+        return bytes.toString();
+    }
+
+    /**
+     * Check that the values are in the domains and satisfy every constraint
+     */
+    static void assertValid(BinaryCSP csp, int[] values, String name) {
+        assertNotNull(values, name);
+        for (int i = 0; i < csp.getNoVariables(); i++) {
+            assertTrue(values[i] >= csp.getLB(i) && values[i] <= csp.getUB(i), name + ": value of " + i);
+        }
+        for (BinaryConstraint bc : csp.getConstraints()) {
+            int v1 = values[bc.getFirstVar()];
+            int v2 = values[bc.getSecondVar()];
+            boolean allowed = false;
+            for (int t = 0; t < bc.getNoTuples() && !allowed; t++) {
+                allowed = bc.getFirstValues()[t] == v1 && bc.getSecondValues()[t] == v2;
+            }
+            assertTrue(allowed, name + ": c(" + bc.getFirstVar() + ", " + bc.getSecondVar() + ")");
+        }
+    }
+
+    /**
+     * Collects the distinct solutions after checking them, workers may call it concurrently
+     */
+    static class Solutions implements SolutionSink {
+        private final BinaryCSP csp;
+        private final Set<List<Integer>> found = new LinkedHashSet<List<Integer>>();
+
+        Solutions(BinaryCSP csp) {
+            this.csp = csp;
+        }
+
+        @Override
+        public synchronized boolean accept(int[] values) {
+            assertValid(csp, values, "solution");
+            assertTrue(found.add(Arrays.stream(values).boxed().collect(Collectors.toList())), "duplicate solution");
+            return true;
+        }
+
+        synchronized long size() {
+            return found.size();
+        }
+
+        /**
+         * Solutions in the order they were found
+         */
+        synchronized List<List<Integer>> list() {
+            return new ArrayList<List<Integer>>(found);
+        }
+    }
+}
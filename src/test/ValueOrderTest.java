@@ -0,0 +1,94 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.stream.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.*;
+
+/**
+ * The value orderings other than asc change the order of the search, never the
+ * solutions found
+ */
+public class ValueOrderTest {
+
+    static Stream<Arguments> configurations() {
+        return Solver.ALGORITHMS.stream().flatMap(algorithm -> Solver.VAL_ORDERS.stream()
+                .filter(valOrder -> !valOrder.equals("asc")).map(valOrder -> Arguments.of(algorithm, valOrder)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("configurations")
+    void countsSolutions(String algorithm, String valOrder) {
+        for (Map.Entry<String, Long> e : TestCSPs.COUNTS.entrySet()) {
+            assertEquals(e.getValue(), solutions(e.getKey(), algorithm, "sdf", valOrder).size(), e.getKey());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("configurations")
+    void provesUnsatisfiability(String algorithm, String valOrder) {
+        for (String name : TestCSPs.UNSAT) {
+            Solver solver = new Solver(TestCSPs.problem(name), "dom/wdeg", valOrder);
+            assertEquals(SolverResult.Status.UNSAT, solver.run(algorithm).getStatus(), name);
+        }
+    }
+
+    @Test
+    void descendingReversesTheEnumeration() {
+        // With a static variable ordering the solutions come in reverse lexicographic order
+        for (String algorithm : Solver.ALGORITHMS) {
+            List<List<Integer>> asc = solutions("8Queens", algorithm, "asc", "asc");
+            List<List<Integer>> desc = solutions("8Queens", algorithm, "asc", "desc");
+            Collections.reverse(desc);
+            assertEquals(asc, desc, algorithm);
+        }
+    }
+
+    @Test
+    void randomIsReproducibleFromTheSeed() {
+        BinaryCSP csp = TestCSPs.problem("10Queens");
+        Set<List<Integer>> firstSolutions = new HashSet<List<Integer>>();
+        for (long seed = 1; seed <= 8; seed++) {
+            SolverResult first = solveRandom(csp, seed);
+            SolverResult again = solveRandom(csp, seed);
+            assertArrayEquals(first.getSolution(), again.getSolution(), "seed " + seed);
+            assertEquals(first.getSearchNodes(), again.getSearchNodes(), "seed " + seed);
+            TestCSPs.assertValid(csp, first.getSolution(), "seed " + seed);
+            firstSolutions.add(Arrays.stream(first.getSolution()).boxed().collect(Collectors.toList()));
+        }
+        assertTrue(firstSolutions.size() > 1, "every seed found the same solution");
+    }
+
+    @Test
+    void leastConstrainingValueFindsValidSolutions() {
+        for (String name : new String[] { "FinnishSudoku", "SimonisSudoku", "langfords3_10" }) {
+            BinaryCSP csp = TestCSPs.problem(name);
+            for (String algorithm : Solver.ALGORITHMS) {
+                Solver solver = new Solver(csp, "dom/wdeg", "lcv");
+                SolverResult result = solver.run(algorithm);
+                assertEquals(SolverResult.Status.SAT, result.getStatus(), name + " " + algorithm);
+                TestCSPs.assertValid(csp, result.getSolution(), name + " " + algorithm);
+            }
+        }
+    }
+
+    private static SolverResult solveRandom(BinaryCSP csp, long seed) {
+        Solver solver = new Solver(csp, "sdf", "random");
+        solver.setSeed(seed);
+        return solver.run("mac");
+    }
+
+    /**
+     * Every solution in the order found, each checked and distinct
+     */
+    private static List<List<Integer>> solutions(String name, String algorithm, String varOrder, String valOrder) {
+        BinaryCSP csp = TestCSPs.problem(name);
+        TestCSPs.Solutions solutions = new TestCSPs.Solutions(csp);
+        Solver solver = new Solver(csp, varOrder, valOrder);
+        solver.setAllSolutions(true);
+        solver.setSolutionSink(solutions);
+        solver.run(algorithm);
+        return solutions.list();
+    }
+}
@@ -0,0 +1,55 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.stream.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.*;
+
+/**
+ * Assignment of variables whose domains hold negative values
+ */
+public class VariableTest {
+
+    // x0, x1 in -1..1 with x1 = x0 + 1 modulo 3, so -1 is a value like any other
+    private static final String NEGATIVE = "2\n-1, 1\n-1, 1\nc(0, 1)\n-1, 0\n0, 1\n1, -1\n";
+
+    static Stream<Arguments> configurations() {
+        return TestCSPs.configurations();
+    }
+
+    @Test
+    void negativeValuesAreAssigned() {
+        Variable v = new Variable(0, new Domain(-3, 3));
+        assertFalse(v.isAssigned());
+        v.assign(-1, new Trail(new ArrayList<Variable>(List.of(v))));
+        assertTrue(v.isAssigned());
+        assertEquals(-1, v.getValue());
+        v.unassign();
+        assertFalse(v.isAssigned());
+    }
+
+    @ParameterizedTest
+    @MethodSource("configurations")
+    void solvesNegativeDomains(String algorithm, String varOrder) throws IOException {
+        BinaryCSP csp = TestCSPs.parse(NEGATIVE);
+        Solver solver = new Solver(csp, varOrder, "asc");
+        SolverResult result = solver.run(algorithm);
+        assertEquals(SolverResult.Status.SAT, result.getStatus());
+        assertArrayEquals(new int[] { -1, 0 }, result.getSolution());
+
+        TestCSPs.Solutions solutions = new TestCSPs.Solutions(csp);
+        solver = new Solver(csp, varOrder, "asc");
+        solver.setAllSolutions(true);
+        solver.setSolutionSink(solutions);
+        solver.run(algorithm);
+        assertEquals(3, solutions.size());
+
+        solutions = new TestCSPs.Solutions(csp);
+        ParallelSearch search = new ParallelSearch(csp, algorithm, varOrder, "asc", true, 2);
+        search.setSolutionSink(solutions);
+        search.run();
+        assertEquals(3, solutions.size());
+    }
+}